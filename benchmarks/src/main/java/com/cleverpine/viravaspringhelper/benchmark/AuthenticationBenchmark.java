@@ -0,0 +1,68 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.ViravaAuthenticationToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ViravaAuthenticationToken#ofAuthorized} on an already parsed payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    @Param({"10", "100"})
+    private int catalogSize;
+
+    @Param({"10", "1000"})
+    private int resourceIdCount;
+
+    private RoleConfig<?, ?> roleConfig;
+
+    private AuthTokenConfig authTokenConfig;
+
+    private Map<String, Object> payloadJsonMap;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var catalog = new Catalog(catalogSize);
+        roleConfig = catalog.roleConfig();
+        authTokenConfig = Tokens.hmacConfig();
+        token = Tokens.hmac(catalog.roleNames(3), Map.of(
+                "IDS_RESOURCE_0", Tokens.resourceIds(resourceIdCount),
+                "IDS_RESOURCE_1", "ALL"));
+        var payload = Base64.getUrlDecoder().decode(JWT.decode(token).getPayload());
+        payloadJsonMap = new ObjectMapper().readValue(payload, new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    public ViravaAuthenticationToken ofAuthorized() {
+        return ViravaAuthenticationToken.ofAuthorized(payloadJsonMap, roleConfig, authTokenConfig, token);
+    }
+}
@@ -0,0 +1,72 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.cleverpine.viravaspringhelper.core.BaseResource;
+import com.cleverpine.viravaspringhelper.core.ViravaUserPrincipal;
+import com.cleverpine.viravaspringhelper.dto.ResourceIdsAccess;
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Measures {@link ViravaUserPrincipal#isAuthorized} with small and large resource id lists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    @Param({"10", "100000"})
+    private int resourceIdCount;
+
+    private ViravaUserPrincipal principal;
+
+    private BaseResource resource;
+
+    private Long grantedId;
+
+    private Long deniedId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var catalog = new Catalog(100);
+        var roleConfig = catalog.roleConfig();
+        resource = catalog.resource(0);
+        var ids = LongStream.rangeClosed(1, resourceIdCount).toArray();
+        principal = new ViravaUserPrincipal("john.doe", roleConfig.getRolePermissions(catalog.roleNames(3)),
+                List.of(new ResourceIdsAccess(resource, ids, false)));
+        grantedId = (long) resourceIdCount / 2;
+        deniedId = (long) resourceIdCount + 1;
+    }
+
+    @Benchmark
+    public boolean scopeOnly() {
+        return principal.isAuthorized(resource, ScopeType.READ);
+    }
+
+    @Benchmark
+    public boolean grantedResourceId() {
+        return principal.isAuthorized(resource, grantedId, false, ScopeType.READ);
+    }
+
+    @Benchmark
+    public boolean deniedResourceId() {
+        return principal.isAuthorized(resource, deniedId, false, ScopeType.READ);
+    }
+}
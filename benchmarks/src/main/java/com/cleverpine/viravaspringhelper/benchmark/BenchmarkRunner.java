@@ -0,0 +1,42 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the selected benchmarks with the GC profiler, once single-threaded and once with a thread per available
+ * processor, so both per-operation allocations and contention show up in the results.
+ * <p>
+ * Accepts the regular JMH command line. If a thread count is given with {@code -t}, only that count is run.
+ * </p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        var commandLineOptions = new CommandLineOptions(args);
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        var threadCounts = commandLineOptions.getThreads().hasValue() ?
+                new int[]{commandLineOptions.getThreads().get()} :
+                new int[]{1, Runtime.getRuntime().availableProcessors()};
+        for (int threads : threadCounts) {
+            var options = new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
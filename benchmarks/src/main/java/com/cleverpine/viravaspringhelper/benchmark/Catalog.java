@@ -0,0 +1,97 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.BaseResource;
+import com.cleverpine.viravaspringhelper.core.BaseRole;
+import com.cleverpine.viravaspringhelper.dto.Permission;
+import com.cleverpine.viravaspringhelper.dto.Scope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A generated resource and role catalog of a given size, standing in for the enums applications declare.
+ * Every role can read every resource and has full access to its own slice of the resources.
+ */
+public final class Catalog {
+
+    public static final int ROLE_COUNT = 8;
+
+    private final List<BaseResource> resources;
+
+    private final List<BaseRole> roles;
+
+    public Catalog(int resourceCount) {
+        var resourceList = new ArrayList<BaseResource>(resourceCount);
+        var fullResourceList = Collections.unmodifiableList(resourceList);
+        for (int i = 0; i < resourceCount; i++) {
+            resourceList.add(new CatalogResource("RESOURCE_" + i, fullResourceList));
+        }
+        this.resources = fullResourceList;
+        var roleList = new ArrayList<BaseRole>(ROLE_COUNT);
+        for (int i = 0; i < ROLE_COUNT; i++) {
+            var permissions = new ArrayList<Permission>(resourceCount);
+            for (int j = 0; j < resourceCount; j++) {
+                var scope = j % ROLE_COUNT == i ? Scope.CRUD : Scope.READ;
+                permissions.add(Permission.of(resources.get(j), scope));
+            }
+            roleList.add(new CatalogRole("ROLE_" + i, List.copyOf(permissions)));
+        }
+        this.roles = List.copyOf(roleList);
+    }
+
+    public RoleConfig<BaseRole, BaseResource> roleConfig() {
+        return new RoleConfig<>(roles, resources);
+    }
+
+    public BaseResource resource(int index) {
+        return resources.get(index);
+    }
+
+    /**
+     * Returns the names of the first {@code count} roles, as they would appear in a token.
+     */
+    public List<String> roleNames(int count) {
+        return roles.stream()
+                .limit(count)
+                .map(BaseRole::getRoleName)
+                .toList();
+    }
+
+    private record CatalogResource(String resource, List<BaseResource> fullResourceList) implements BaseResource {
+
+        @Override
+        public List<BaseResource> getFullResourceList() {
+            return fullResourceList;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+
+        @Override
+        public String toString() {
+            return resource;
+        }
+    }
+
+    private record CatalogRole(String roleName, List<Permission> permissionList) implements BaseRole {
+
+        @Override
+        public String getRoleName() {
+            return roleName;
+        }
+
+        @Override
+        public List<Permission> getPermissionList() {
+            return permissionList;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaims;
+import com.cleverpine.viravaspringhelper.core.IntrospectionTokenAuthenticator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link IntrospectionTokenAuthenticator#process(String)} for a cached token against a round trip to the
+ * introspection endpoint for every token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntrospectionBenchmark {
+
+    private IntrospectionEndpointStandIn introspectionEndpoint;
+
+    private IntrospectionTokenAuthenticator cachingAuthenticator;
+
+    private IntrospectionTokenAuthenticator uncachedAuthenticator;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        introspectionEndpoint = new IntrospectionEndpointStandIn();
+        token = introspectionEndpoint.issue(Map.of(
+                Tokens.USERNAME_PATH, "benchmark.user",
+                "resource_access", Map.of("virava", Map.of("roles", List.of("USER"))),
+                "exp", Instant.now().plus(Duration.ofHours(1)).getEpochSecond()));
+        cachingAuthenticator = IntrospectionTokenAuthenticator.builder(introspectionEndpoint.getIntrospectionUri())
+                .build();
+        uncachedAuthenticator = IntrospectionTokenAuthenticator.builder(introspectionEndpoint.getIntrospectionUri())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        introspectionEndpoint.close();
+    }
+
+    @Benchmark
+    public VerifiedClaims cachedToken() {
+        return cachingAuthenticator.process(token);
+    }
+
+    @Benchmark
+    public VerifiedClaims introspectedToken() {
+        uncachedAuthenticator.invalidateAll();
+        return uncachedAuthenticator.process(token);
+    }
+}
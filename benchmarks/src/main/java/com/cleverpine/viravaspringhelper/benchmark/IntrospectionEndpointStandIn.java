@@ -0,0 +1,125 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local OAuth 2.0 token introspection endpoint (RFC 7662), standing in for the authorization server. It issues
+ * random opaque tokens for given claims and answers each introspection after a configurable latency.
+ */
+public class IntrospectionEndpointStandIn implements AutoCloseable {
+
+    private static final String INTROSPECTION_PATH = "/introspect";
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final Map<String, Map<String, Object>> activeTokens = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private volatile long latencyMillis;
+
+    public IntrospectionEndpointStandIn() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        server.createContext(INTROSPECTION_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            var form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.US_ASCII);
+            var claims = activeTokens.get(tokenParameter(form));
+            var response = new HashMap<String, Object>();
+            if (claims != null) {
+                response.putAll(claims);
+            }
+            response.put("active", claims != null);
+            sleep(latencyMillis);
+            var body = objectMapper.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public URI getIntrospectionUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + INTROSPECTION_PATH);
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void setLatency(Duration latency) {
+        this.latencyMillis = latency.toMillis();
+    }
+
+    /**
+     * Issues an opaque token that is active with the given claims until {@link #revoke(String) revoked}.
+     *
+     * @param claims the claims to return for the token, e.g. {@code exp} and the username and roles
+     * @return the token
+     */
+    public String issue(Map<String, Object> claims) {
+        var bytes = new byte[32];
+        random.nextBytes(bytes);
+        var token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        activeTokens.put(token, Map.copyOf(claims));
+        return token;
+    }
+
+    public void revoke(String token) {
+        activeTokens.remove(token);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static String tokenParameter(String form) {
+        for (String parameter : form.split("&")) {
+            if (parameter.startsWith("token=")) {
+                return URLDecoder.decode(parameter.substring("token=".length()), StandardCharsets.UTF_8);
+            }
+        }
+        return "";
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A local JWKS endpoint serving a single RSA key, standing in for the identity provider.
+ */
+public class JwksStandIn implements AutoCloseable {
+
+    private static final String JWKS_PATH = "/certs";
+
+    private final HttpServer server;
+
+    private final AtomicReference<SigningKey> currentKey = new AtomicReference<>();
+
+    private final AtomicInteger keyCounter = new AtomicInteger();
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    public JwksStandIn() {
+        rotateKey();
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        server.createContext(JWKS_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            var body = toJwks(currentKey.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public String getJwkSetUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + JWKS_PATH;
+    }
+
+    public SigningKey getCurrentKey() {
+        return currentKey.get();
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Replaces the served key with a freshly generated one under a new key id.
+     *
+     * @return the new signing key
+     */
+    public SigningKey rotateKey() {
+        var key = new SigningKey("key-" + keyCounter.incrementAndGet(), generateKeyPair());
+        currentKey.set(key);
+        return key;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            var generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toJwks(SigningKey key) {
+        var publicKey = (RSAPublicKey) key.keyPair().getPublic();
+        return String.format(
+                "{\"keys\":[{\"kid\":\"%s\",\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"n\":\"%s\",\"e\":\"%s\"}]}",
+                key.keyId(), base64Url(publicKey.getModulus()), base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        var bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            var unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public record SigningKey(String keyId, KeyPair keyPair) {
+    }
+}
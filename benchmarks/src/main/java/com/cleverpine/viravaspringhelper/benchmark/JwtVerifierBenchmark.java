@@ -0,0 +1,100 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.JwkProviderBuilder;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import com.cleverpine.viravaspringhelper.core.ViravaJwtVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.security.interfaces.RSAPublicKey;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ViravaJwtVerifier#process(String)} against building the algorithm and verifier for every token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifierBenchmark {
+
+    @Param({"HS256", "RS256"})
+    private String algorithm;
+
+    private JwksStandIn jwksStandIn;
+
+    private JwkProvider jwkProvider;
+
+    private ViravaJwtVerifier viravaJwtVerifier;
+
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var roles = List.of("USER");
+        var config = AuthTokenConfig.builder()
+                .withUsernamePath(Tokens.USERNAME_PATH)
+                .withRolesPath(Tokens.ROLES_PATH)
+                .withIssuer(Tokens.ISSUER);
+        if ("HS256".equals(algorithm)) {
+            token = Tokens.hmac(roles, Map.of());
+            config.withSecret(Tokens.SECRET);
+        } else {
+            jwksStandIn = new JwksStandIn();
+            token = Tokens.rsa(jwksStandIn.getCurrentKey(), roles, Map.of());
+            config.withJwkSetUrl(jwksStandIn.getJwkSetUrl());
+            jwkProvider = new JwkProviderBuilder(new URL(jwksStandIn.getJwkSetUrl()))
+                    .cached(10, 24, TimeUnit.HOURS)
+                    .build();
+        }
+        viravaJwtVerifier = new ViravaJwtVerifier(config.build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (jwksStandIn != null) {
+            jwksStandIn.close();
+        }
+    }
+
+    @Benchmark
+    public DecodedJWT perTokenVerifier() throws JwkException {
+        Algorithm verificationAlgorithm;
+        if (jwkProvider == null) {
+            verificationAlgorithm = Algorithm.HMAC256(Tokens.SECRET);
+        } else {
+            var jwk = jwkProvider.get(JWT.decode(token).getKeyId());
+            verificationAlgorithm = Algorithm.RSA256((RSAPublicKey) jwk.getPublicKey(), null);
+        }
+        return JWT.require(verificationAlgorithm)
+                .withIssuer(Tokens.ISSUER)
+                .build()
+                .verify(token);
+    }
+
+    @Benchmark
+    public DecodedJWT viravaJwtVerifier() {
+        return viravaJwtVerifier.process(token);
+    }
+}
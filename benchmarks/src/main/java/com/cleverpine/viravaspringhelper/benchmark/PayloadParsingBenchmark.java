@@ -0,0 +1,65 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.cleverpine.viravaspringhelper.core.StreamingClaimsReader;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the payload decoding and parsing done by {@code ViravaFilter} for a verified token, with the default
+ * full parse and with streaming claims extraction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadParsingBenchmark {
+
+    @Param({"10", "1000"})
+    private int resourceIdCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StreamingClaimsReader streamingClaimsReader;
+
+    private String encodedPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        streamingClaimsReader = new StreamingClaimsReader(objectMapper, Tokens.hmacConfig());
+        var token = Tokens.hmac(List.of("ROLE_0", "ROLE_1"), Map.of("IDS_RESOURCE_0", Tokens.resourceIds(resourceIdCount)));
+        encodedPayload = JWT.decode(token).getPayload();
+    }
+
+    @Benchmark
+    public Map<String, Object> fullParse() throws IOException {
+        var payload = new String(Base64.getUrlDecoder().decode(encodedPayload));
+        return objectMapper.readValue(payload, new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    public Map<String, Object> streamingClaimsExtraction() throws IOException {
+        return streamingClaimsReader.read(Base64.getUrlDecoder().decode(encodedPayload));
+    }
+}
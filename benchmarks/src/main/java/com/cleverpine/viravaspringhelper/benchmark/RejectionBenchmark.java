@@ -0,0 +1,80 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.cleverpine.viravaspringhelper.error.ViravaErrorResponseWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rejections per second the default 401 body can be written at, comparing
+ * {@link ViravaErrorResponseWriter} against building an error response object and serializing it with Jackson
+ * through a writer, as done before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RejectionBenchmark {
+
+    private static final String MESSAGE = "The Token has expired on 2024-05-01T12:30:45Z.";
+
+    private static final String PATH = "/api/projects/42/customers";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    public void errorResponseWriter(Blackhole blackhole) throws IOException {
+        ViravaErrorResponseWriter.UNAUTHORIZED.writeTo(new BlackholeOutputStream(blackhole), MESSAGE, PATH);
+    }
+
+    @Benchmark
+    public void jacksonErrorResponse(Blackhole blackhole) throws IOException {
+        var errorResponse = new JacksonErrorResponse(LocalDateTime.now().toString(), 401, "Unauthorized", MESSAGE, PATH);
+        var writer = new OutputStreamWriter(new BlackholeOutputStream(blackhole), StandardCharsets.UTF_8);
+        writer.write(objectMapper.writeValueAsString(errorResponse));
+        writer.flush();
+    }
+
+    /**
+     * The shape of {@code ViravaErrorResponse}, with the timestamp already formatted, since the benchmarks do not
+     * register Jackson's Java time module.
+     */
+    public record JacksonErrorResponse(String timestamp, Integer status, String error, String message, String path) {
+    }
+
+    private static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        private BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+    }
+}
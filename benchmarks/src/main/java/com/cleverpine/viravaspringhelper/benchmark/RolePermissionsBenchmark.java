@@ -0,0 +1,56 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.RolePermissions;
+import com.cleverpine.viravaspringhelper.dto.Permission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures resolving a token's roles into permissions across catalog sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RolePermissionsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int catalogSize;
+
+    private RoleConfig<?, ?> roleConfig;
+
+    private List<String> roles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var catalog = new Catalog(catalogSize);
+        roleConfig = catalog.roleConfig();
+        roles = catalog.roleNames(3);
+    }
+
+    @Benchmark
+    public List<Permission> getRolePermissionList() {
+        return roleConfig.getRolePermissionList(roles);
+    }
+
+    @Benchmark
+    public RolePermissions getRolePermissions() {
+        return roleConfig.getRolePermissions(roles);
+    }
+}
@@ -0,0 +1,90 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Builds Keycloak-like tokens for the benchmarks.
+ */
+public final class Tokens {
+
+    public static final String SECRET = "virava-benchmark-secret-virava-benchmark-secret";
+
+    public static final String ISSUER = "https://sso.example.com/realms/virava";
+
+    public static final String USERNAME_PATH = "preferred_username";
+
+    public static final String EMAIL_PATH = "email";
+
+    public static final String ROLES_PATH = "resource_access.virava.roles";
+
+    public static final String IS_COMPANY_USER_PATH = "is_company_user";
+
+    private Tokens() {
+    }
+
+    public static String hmac(List<String> roles, Map<String, String> resourceIds) {
+        return claims(roles, resourceIds, Instant.now().plus(Duration.ofHours(1)))
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+
+    public static String rsa(JwksStandIn.SigningKey key, List<String> roles, Map<String, String> resourceIds) {
+        return rsa(key, roles, resourceIds, Instant.now().plus(Duration.ofHours(1)));
+    }
+
+    public static String rsa(JwksStandIn.SigningKey key, List<String> roles, Map<String, String> resourceIds,
+                             Instant expiresAt) {
+        var keyPair = key.keyPair();
+        return claims(roles, resourceIds, expiresAt)
+                .withKeyId(key.keyId())
+                .sign(Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate()));
+    }
+
+    /**
+     * Returns a config reading all claims of the tokens built here, verified with the HMAC secret.
+     */
+    public static AuthTokenConfig hmacConfig() {
+        return AuthTokenConfig.builder()
+                .withUsernamePath(USERNAME_PATH)
+                .withEmailPath(EMAIL_PATH)
+                .withRolesPath(ROLES_PATH)
+                .withIsCompanyUserPath(IS_COMPANY_USER_PATH)
+                .withIssuer(ISSUER)
+                .withSecret(SECRET)
+                .build();
+    }
+
+    /**
+     * Returns an {@code IDS_*} claim value granting access to the ids {@code 1..count}.
+     */
+    public static String resourceIds(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static JWTCreator.Builder claims(List<String> roles, Map<String, String> resourceIds, Instant expiresAt) {
+        var builder = JWT.create()
+                .withIssuer(ISSUER)
+                .withSubject("5f0c7c9e-0b7e-4b43-9b0e-2f1b1a7c1d11")
+                .withIssuedAt(Instant.now())
+                .withExpiresAt(expiresAt)
+                .withClaim(USERNAME_PATH, "john.doe")
+                .withClaim(EMAIL_PATH, "john.doe@example.com")
+                .withClaim(IS_COMPANY_USER_PATH, true)
+                .withClaim("resource_access", Map.of("virava", Map.of("roles", roles)));
+        resourceIds.forEach(builder::withClaim);
+        return builder;
+    }
+}
@@ -0,0 +1,130 @@
+package com.cleverpine.viravaspringhelper.benchmark;
+
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaimsStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local key-value endpoint standing in for a distributed {@link VerifiedClaimsStore}, such as Redis. Every node
+ * gets its own {@link #newClient() client}, and every lookup and write is a round trip over HTTP.
+ */
+public class VerifiedClaimsStoreStandIn implements AutoCloseable {
+
+    private static final String CLAIMS_PATH = "/claims/";
+
+    private static final String EXPIRES_AT_HEADER = "X-Expires-At";
+
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private final HttpServer server;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger hitCount = new AtomicInteger();
+
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    public VerifiedClaimsStoreStandIn() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        server.createContext(CLAIMS_PATH, exchange -> {
+            var digest = exchange.getRequestURI().getPath().substring(CLAIMS_PATH.length());
+            if ("PUT".equals(exchange.getRequestMethod())) {
+                var expiresAt = exchange.getRequestHeaders().getFirst(EXPIRES_AT_HEADER);
+                entries.put(digest, new Entry(exchange.getRequestBody().readAllBytes(), expiresAt == null ?
+                        System.currentTimeMillis() + DEFAULT_TTL.toMillis() :
+                        Long.parseLong(expiresAt)));
+                respond(exchange, 204, null);
+                return;
+            }
+            var entry = entries.get(digest);
+            if (entry == null || entry.expiresAtMillis() <= System.currentTimeMillis()) {
+                missCount.incrementAndGet();
+                respond(exchange, 404, null);
+            } else {
+                hitCount.incrementAndGet();
+                respond(exchange, 200, entry.encodedClaims());
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * @return a store talking to this endpoint, as one node of the application would
+     */
+    public VerifiedClaimsStore newClient() {
+        var baseUri = "http://127.0.0.1:" + server.getAddress().getPort() + CLAIMS_PATH;
+        var httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        return new VerifiedClaimsStore() {
+
+            @Override
+            public byte[] get(String tokenDigest) {
+                var request = HttpRequest.newBuilder(URI.create(baseUri + tokenDigest)).GET().build();
+                var response = send(httpClient, request);
+                return response.statusCode() == 200 ? response.body() : null;
+            }
+
+            @Override
+            public void put(String tokenDigest, byte[] encodedClaims, Instant expiresAt) {
+                var request = HttpRequest.newBuilder(URI.create(baseUri + tokenDigest))
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(encodedClaims));
+                if (expiresAt != null) {
+                    request.header(EXPIRES_AT_HEADER, Long.toString(expiresAt.toEpochMilli()));
+                }
+                send(httpClient, request.build());
+            }
+        };
+    }
+
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static HttpResponse<byte[]> send(HttpClient httpClient, HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        try (var out = exchange.getResponseBody()) {
+            if (body != null) {
+                out.write(body);
+            }
+        }
+    }
+
+    private record Entry(byte[] encodedClaims, long expiresAtMillis) {
+    }
+}
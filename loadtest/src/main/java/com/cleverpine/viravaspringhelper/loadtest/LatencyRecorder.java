@@ -0,0 +1,78 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Records the latencies seen by one client thread for one kind of token. Every sample is kept, so percentiles are
+ * exact once the recorders of all clients are merged.
+ */
+public class LatencyRecorder {
+
+    private long[] latencies = new long[1 << 14];
+
+    private int count;
+
+    private long unexpectedCount;
+
+    /**
+     * @param latencyNanos the time from sending the request to receiving the whole response
+     * @param expected     whether the response had the expected status code
+     */
+    public void record(long latencyNanos, boolean expected) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!expected) {
+            unexpectedCount++;
+        }
+    }
+
+    /**
+     * Records a request that failed without a response.
+     */
+    public void recordFailure() {
+        unexpectedCount++;
+    }
+
+    /**
+     * Merges the recorders of all clients.
+     *
+     * @param recorders the recorders, which must no longer be recorded to
+     * @return the merged results
+     */
+    public static Summary summarize(Collection<LatencyRecorder> recorders) {
+        var total = recorders.stream().mapToInt(recorder -> recorder.count).sum();
+        var merged = new long[total];
+        var position = 0;
+        var unexpected = 0L;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, merged, position, recorder.count);
+            position += recorder.count;
+            unexpected += recorder.unexpectedCount;
+        }
+        Arrays.sort(merged);
+        return new Summary(merged, unexpected);
+    }
+
+    public record Summary(long[] sortedLatencies, long unexpectedCount) {
+
+        public int count() {
+            return sortedLatencies.length;
+        }
+
+        /**
+         * @param quantile the quantile, e.g. {@code 0.999}
+         * @return the latency in nanoseconds at or below which the given share of requests completed, or {@code 0}
+         * if nothing was recorded
+         */
+        public long percentile(double quantile) {
+            if (sortedLatencies.length == 0) {
+                return 0L;
+            }
+            var rank = (int) Math.ceil(quantile * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, rank - 1)];
+        }
+    }
+}
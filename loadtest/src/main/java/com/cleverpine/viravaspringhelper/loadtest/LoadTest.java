@@ -0,0 +1,244 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import com.cleverpine.viravaspringhelper.filter.ViravaFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the {@link ViravaFilter} on an embedded Tomcat with a mix of valid, expired and forged tokens from concurrent
+ * clients, and reports the throughput and latency percentiles per kind of token.
+ * <p>
+ * Every client sends its next request as soon as the previous one is answered. Latencies are only recorded after the
+ * warm-up. The JWKS stand-in rotates its key at the given interval, and the tokens are signed again with the new key.
+ * </p>
+ */
+public final class LoadTest {
+
+    private static final String USAGE = """
+            Options:
+              --clients=N      concurrent clients (default: 4 per available processor)
+              --duration=S     measured seconds (default: 30)
+              --warmup=S       warm-up seconds (default: 10)
+              --valid=W        weight of valid tokens (default: 80)
+              --expired=W      weight of expired tokens (default: 10)
+              --forged=W       weight of forged tokens (default: 10)
+              --tokens=N       distinct tokens per kind (default: 1000)
+              --rotation=S     key rotation interval in seconds, 0 to disable (default: 60)
+              --threads=N      Tomcat worker threads (default: 200)
+              --caches         enable the verified and rejected token caches
+            """;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        try (var jwks = new RotatingJwksStandIn();
+             var server = new LoadTestServer(jwks.getJwkSetUrl(), options.threads(), options.caches())) {
+            server.start();
+            var tokenPool = new TokenPool(options.tokens(), jwks);
+            var rotation = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "jwks-rotation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (options.rotationSeconds() > 0) {
+                rotation.scheduleAtFixedRate(() -> tokenPool.sign(jwks.rotateKey()),
+                        options.rotationSeconds(), options.rotationSeconds(), TimeUnit.SECONDS);
+            }
+            var results = run(options, server.getBaseUrl(), tokenPool);
+            rotation.shutdownNow();
+            report(options, results, jwks.getRequestCount());
+        }
+    }
+
+    private static Map<TokenPool.Kind, LatencyRecorder.Summary> run(Options options, String baseUrl, TokenPool tokenPool)
+            throws InterruptedException {
+        var httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        var measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+        var end = measureStart + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        var recorders = new ArrayList<Map<TokenPool.Kind, LatencyRecorder>>();
+        var clients = new ArrayList<Thread>();
+        for (int i = 0; i < options.clients(); i++) {
+            var clientRecorders = new EnumMap<TokenPool.Kind, LatencyRecorder>(TokenPool.Kind.class);
+            for (TokenPool.Kind kind : TokenPool.Kind.values()) {
+                clientRecorders.put(kind, new LatencyRecorder());
+            }
+            recorders.add(clientRecorders);
+            var client = new Thread(() -> runClient(options, httpClient, baseUrl, tokenPool, clientRecorders,
+                    measureStart, end), "load-client-" + i);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        var summaries = new EnumMap<TokenPool.Kind, LatencyRecorder.Summary>(TokenPool.Kind.class);
+        for (TokenPool.Kind kind : TokenPool.Kind.values()) {
+            summaries.put(kind, LatencyRecorder.summarize(recorders.stream().map(clientRecorders -> clientRecorders.get(kind)).toList()));
+        }
+        return summaries;
+    }
+
+    private static void runClient(Options options, HttpClient httpClient, String baseUrl, TokenPool tokenPool,
+                                  Map<TokenPool.Kind, LatencyRecorder> recorders, long measureStart, long end) {
+        var random = ThreadLocalRandom.current();
+        while (true) {
+            var start = System.nanoTime();
+            if (start >= end) {
+                return;
+            }
+            var kind = options.pickKind(random.nextInt(options.totalWeight()));
+            var token = tokenPool.get(kind, random.nextInt(options.tokens()));
+            var projectId = random.nextInt(TokenPool.PROJECT_COUNT) + 1;
+            var request = HttpRequest.newBuilder(URI.create(baseUrl + LoadTestServer.PROJECTS_PATH + projectId))
+                    .header("Authorization", ViravaFilter.BEARER_PREFIX + token)
+                    .GET()
+                    .build();
+            try {
+                var status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (start >= measureStart) {
+                    recorders.get(kind).record(System.nanoTime() - start, status == kind.expectedStatus());
+                }
+            } catch (IOException ex) {
+                if (start >= measureStart) {
+                    recorders.get(kind).recordFailure();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void report(Options options, Map<TokenPool.Kind, LatencyRecorder.Summary> results, long jwksRequests) {
+        System.out.printf(Locale.ROOT, "%d clients, %d processors, %d s measured after %d s warm-up, caches %s, "
+                        + "key rotation %s, %d JWKS fetches%n",
+                options.clients(), Runtime.getRuntime().availableProcessors(), options.durationSeconds(),
+                options.warmupSeconds(), options.caches() ? "on" : "off",
+                options.rotationSeconds() > 0 ? "every " + options.rotationSeconds() + " s" : "off", jwksRequests);
+        System.out.printf(Locale.ROOT, "%-8s %12s %12s %12s %10s %10s %10s%n",
+                "kind", "requests", "unexpected", "requests/s", "p50 ms", "p99 ms", "p99.9 ms");
+        var all = new ArrayList<LatencyRecorder.Summary>();
+        for (var entry : results.entrySet()) {
+            printRow(entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue(), options.durationSeconds());
+            all.add(entry.getValue());
+        }
+        printRow("total", merge(all), options.durationSeconds());
+    }
+
+    private static LatencyRecorder.Summary merge(List<LatencyRecorder.Summary> summaries) {
+        var merged = new LatencyRecorder();
+        var unexpected = 0L;
+        for (LatencyRecorder.Summary summary : summaries) {
+            for (long latency : summary.sortedLatencies()) {
+                merged.record(latency, true);
+            }
+            unexpected += summary.unexpectedCount();
+        }
+        var summary = LatencyRecorder.summarize(List.of(merged));
+        return new LatencyRecorder.Summary(summary.sortedLatencies(), unexpected);
+    }
+
+    private static void printRow(String name, LatencyRecorder.Summary summary, int durationSeconds) {
+        System.out.printf(Locale.ROOT, "%-8s %12d %12d %12.0f %10.3f %10.3f %10.3f%n",
+                name, summary.count(), summary.unexpectedCount(), (double) summary.count() / durationSeconds,
+                millis(summary.percentile(0.5)), millis(summary.percentile(0.99)), millis(summary.percentile(0.999)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private record Options(int clients, int durationSeconds, int warmupSeconds, Map<TokenPool.Kind, Integer> weights,
+                           int tokens, int rotationSeconds, int threads, boolean caches) {
+
+        static Options parse(String[] args) {
+            var values = new HashMap<String, String>();
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException(String.format("Unknown argument [%s]", arg));
+                }
+                var separator = arg.indexOf('=');
+                values.put(separator < 0 ? arg.substring(2) : arg.substring(2, separator),
+                        separator < 0 ? "true" : arg.substring(separator + 1));
+            }
+            var weights = new EnumMap<TokenPool.Kind, Integer>(TokenPool.Kind.class);
+            weights.put(TokenPool.Kind.VALID, intValue(values, "valid", 80));
+            weights.put(TokenPool.Kind.EXPIRED, intValue(values, "expired", 10));
+            weights.put(TokenPool.Kind.FORGED, intValue(values, "forged", 10));
+            var options = new Options(
+                    intValue(values, "clients", 4 * Runtime.getRuntime().availableProcessors()),
+                    intValue(values, "duration", 30),
+                    intValue(values, "warmup", 10),
+                    weights,
+                    intValue(values, "tokens", 1000),
+                    intValue(values, "rotation", 60),
+                    intValue(values, "threads", 200),
+                    Boolean.parseBoolean(values.remove("caches")));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException(String.format("Unknown options %s", values.keySet()));
+            }
+            if (options.clients() <= 0 || options.durationSeconds() <= 0 || options.tokens() <= 0
+                    || options.threads() <= 0 || options.totalWeight() <= 0) {
+                throw new IllegalArgumentException("Clients, duration, tokens, threads and the total weight must be positive");
+            }
+            return options;
+        }
+
+        int totalWeight() {
+            return weights.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        TokenPool.Kind pickKind(int randomWeight) {
+            for (var entry : weights.entrySet()) {
+                randomWeight -= entry.getValue();
+                if (randomWeight < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Random weight out of range");
+        }
+
+        private static int intValue(Map<String, String> values, String name, int defaultValue) {
+            var value = values.remove(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                var parsed = Integer.parseInt(value);
+                if (parsed < 0) {
+                    throw new IllegalArgumentException(String.format("Option [%s] cannot be negative", name));
+                }
+                return parsed;
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException(String.format("Option [%s] must be a whole number", name));
+            }
+        }
+    }
+}
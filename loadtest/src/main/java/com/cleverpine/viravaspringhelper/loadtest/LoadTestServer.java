@@ -0,0 +1,191 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import com.cleverpine.viravaspringhelper.aop.ViravaSecured;
+import com.cleverpine.viravaspringhelper.aop.ViravaSecuredAspect;
+import com.cleverpine.viravaspringhelper.aop.ViravaSecuredPlanRegistry;
+import com.cleverpine.viravaspringhelper.cache.RejectedTokenCache;
+import com.cleverpine.viravaspringhelper.cache.VerifiedTokenCache;
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.CustomPrincipalInfo;
+import com.cleverpine.viravaspringhelper.core.ViravaJwtVerifier;
+import com.cleverpine.viravaspringhelper.core.ViravaPrincipalProvider;
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+import com.cleverpine.viravaspringhelper.error.ViravaAccessDeniedHandler;
+import com.cleverpine.viravaspringhelper.error.ViravaAuthErrorEntryPoint;
+import com.cleverpine.viravaspringhelper.filter.ViravaFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * An embedded Tomcat serving {@code GET /api/projects/{projectId}} behind the {@link ViravaFilter}, with the
+ * controller method secured by {@link ViravaSecured} through the {@link ViravaSecuredAspect}. Rejections are answered
+ * by the {@link ViravaAuthErrorEntryPoint} and the {@link ViravaAccessDeniedHandler}, as in a Spring Security setup.
+ */
+public class LoadTestServer implements AutoCloseable {
+
+    public static final String PROJECTS_PATH = "/api/projects/";
+
+    private final Tomcat tomcat;
+
+    private final Connector connector;
+
+    /**
+     * @param jwkSetUrl  the JWK set URL of the identity provider
+     * @param maxThreads the maximum number of Tomcat worker threads
+     * @param caches     whether to enable the verified and rejected token caches of the filter
+     */
+    public LoadTestServer(String jwkSetUrl, int maxThreads, boolean caches) {
+        var roleConfig = new RoleConfig<>(Roles.values(), Resources.values());
+        var authTokenConfig = TokenPool.authTokenConfig(jwkSetUrl);
+        var viravaFilter = new ViravaFilter(roleConfig, new ObjectMapper(), authTokenConfig,
+                new ViravaJwtVerifier(authTokenConfig));
+        if (caches) {
+            viravaFilter.setVerifiedTokenCache(VerifiedTokenCache.builder().build());
+            viravaFilter.setRejectedTokenCache(RejectedTokenCache.builder().build());
+        }
+        var planRegistry = new ViravaSecuredPlanRegistry(roleConfig);
+        planRegistry.validate(ProjectController.class);
+        var proxyFactory = new AspectJProxyFactory(new ProjectController());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new ViravaSecuredAspect(new PrincipalProvider(), planRegistry));
+        ProjectController projectController = proxyFactory.getProxy();
+
+        tomcat = new Tomcat();
+        try {
+            tomcat.setBaseDir(Files.createTempDirectory("virava-loadtest").toString());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        connector = new Connector();
+        connector.setPort(0);
+        connector.setProperty("address", "127.0.0.1");
+        connector.setProperty("maxThreads", Integer.toString(maxThreads));
+        tomcat.setConnector(connector);
+        var context = tomcat.addContext("", null);
+        addFilter(context, "securityContext", new SecurityContextClearingFilter());
+        addFilter(context, "virava", viravaFilter);
+        Tomcat.addServlet(context, "projects", new ProjectServlet(projectController));
+        context.addServletMappingDecoded(PROJECTS_PATH + "*", "projects");
+    }
+
+    public void start() throws LifecycleException {
+        tomcat.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + connector.getLocalPort();
+    }
+
+    @Override
+    public void close() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    private static void addFilter(Context context, String name, Filter filter) {
+        var filterDef = new FilterDef();
+        filterDef.setFilterName(name);
+        filterDef.setFilter(filter);
+        context.addFilterDef(filterDef);
+        var filterMap = new FilterMap();
+        filterMap.setFilterName(name);
+        filterMap.addURLPattern("/*");
+        context.addFilterMap(filterMap);
+    }
+
+    public static class ProjectController {
+
+        @ViravaSecured(resource = "PROJECT", scope = ScopeType.READ, resourceIdParamName = "projectId")
+        public String getProject(Long projectId) {
+            return "{\"id\":" + projectId + "}";
+        }
+    }
+
+    public static class NoPrincipalInfo implements CustomPrincipalInfo {
+    }
+
+    private static class PrincipalProvider extends ViravaPrincipalProvider<NoPrincipalInfo> {
+
+        private PrincipalProvider() {
+            super(NoPrincipalInfo.class);
+        }
+
+        @Override
+        public NoPrincipalInfo provideCustomPrincipalInfo(String username) {
+            return new NoPrincipalInfo();
+        }
+    }
+
+    /**
+     * Clears the security context the {@link ViravaFilter} set on the worker thread once the request is handled,
+     * as Spring Security's own filters do.
+     */
+    private static class SecurityContextClearingFilter implements Filter {
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    private static class ProjectServlet extends HttpServlet {
+
+        private final ProjectController projectController;
+
+        private final ViravaAuthErrorEntryPoint authErrorEntryPoint = new ViravaAuthErrorEntryPoint();
+
+        private final ViravaAccessDeniedHandler accessDeniedHandler = new ViravaAccessDeniedHandler();
+
+        private ProjectServlet(ProjectController projectController) {
+            this.projectController = projectController;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            Long projectId;
+            try {
+                projectId = Long.valueOf(request.getRequestURI().substring(PROJECTS_PATH.length()));
+            } catch (NumberFormatException ex) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            try {
+                var body = projectController.getProject(projectId).getBytes(StandardCharsets.UTF_8);
+                response.setContentType("application/json");
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+            } catch (AccessDeniedException ex) {
+                accessDeniedHandler.handle(request, response, ex);
+            } catch (AuthenticationException ex) {
+                authErrorEntryPoint.commence(request, response, ex);
+            }
+        }
+    }
+}
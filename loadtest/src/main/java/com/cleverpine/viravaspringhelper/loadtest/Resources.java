@@ -0,0 +1,26 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import com.cleverpine.viravaspringhelper.core.BaseResource;
+
+import java.util.List;
+
+public enum Resources implements BaseResource {
+
+    PROJECT("PROJECT");
+
+    private final String resource;
+
+    Resources(String resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public String resource() {
+        return resource;
+    }
+
+    @Override
+    public List<BaseResource> getFullResourceList() {
+        return List.of(values());
+    }
+}
@@ -0,0 +1,31 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import com.cleverpine.viravaspringhelper.core.BaseRole;
+import com.cleverpine.viravaspringhelper.dto.Permission;
+import com.cleverpine.viravaspringhelper.dto.Scope;
+
+import java.util.List;
+
+public enum Roles implements BaseRole {
+
+    USER("USER", List.of(Permission.of(Resources.PROJECT, Scope.READ)));
+
+    private final String roleName;
+
+    private final List<Permission> permissionList;
+
+    Roles(String roleName, List<Permission> permissionList) {
+        this.roleName = roleName;
+        this.permissionList = permissionList;
+    }
+
+    @Override
+    public String getRoleName() {
+        return roleName;
+    }
+
+    @Override
+    public List<Permission> getPermissionList() {
+        return permissionList;
+    }
+}
@@ -0,0 +1,135 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * A local JWKS endpoint standing in for the identity provider, rotating its RSA keys the way identity providers
+ * usually do: the next key is published before tokens are signed with it, and the previous key stays published while
+ * tokens signed with it are still in use.
+ */
+public class RotatingJwksStandIn implements AutoCloseable {
+
+    private static final String JWKS_PATH = "/certs";
+
+    private final HttpServer server;
+
+    private final AtomicInteger keyCounter = new AtomicInteger();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private volatile KeyRing keyRing;
+
+    public RotatingJwksStandIn() {
+        keyRing = new KeyRing(newKey(), newKey(), newKey());
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        server.createContext(JWKS_PATH, exchange -> {
+            requestCount.incrementAndGet();
+            var body = toJwks(keyRing.published()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public String getJwkSetUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + JWKS_PATH;
+    }
+
+    /**
+     * @return the key tokens are currently signed with
+     */
+    public SigningKey getCurrentKey() {
+        return keyRing.current();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Starts signing with the published next key, publishes a new next key and retires the previous one.
+     *
+     * @return the new current key
+     */
+    public SigningKey rotateKey() {
+        var current = keyRing;
+        keyRing = new KeyRing(current.current(), current.next(), newKey());
+        return keyRing.current();
+    }
+
+    /**
+     * Generates an RSA key pair under a fresh key id that is never published.
+     */
+    public SigningKey newUnpublishedKey() {
+        return newKey();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private SigningKey newKey() {
+        try {
+            var generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return new SigningKey("key-" + keyCounter.incrementAndGet(), generator.generateKeyPair());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String toJwks(List<SigningKey> keys) {
+        return keys.stream()
+                .map(RotatingJwksStandIn::toJwk)
+                .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+    }
+
+    private static String toJwk(SigningKey key) {
+        var publicKey = (RSAPublicKey) key.keyPair().getPublic();
+        return String.format("{\"kid\":\"%s\",\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"n\":\"%s\",\"e\":\"%s\"}",
+                key.keyId(), base64Url(publicKey.getModulus()), base64Url(publicKey.getPublicExponent()));
+    }
+
+    private static String base64Url(BigInteger value) {
+        var bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            var unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public record SigningKey(String keyId, KeyPair keyPair) {
+    }
+
+    private record KeyRing(SigningKey previous, SigningKey current, SigningKey next) {
+
+        List<SigningKey> published() {
+            return List.of(previous, current, next);
+        }
+    }
+}
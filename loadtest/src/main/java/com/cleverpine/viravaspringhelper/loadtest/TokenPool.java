@@ -0,0 +1,113 @@
+package com.cleverpine.viravaspringhelper.loadtest;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps a set of distinct tokens of every {@link Kind}, signed with the current key of the JWKS stand-in and signed
+ * again whenever the key is rotated.
+ */
+public class TokenPool {
+
+    public static final String ISSUER = "https://sso.example.com/realms/virava-loadtest";
+
+    public static final String USERNAME_PATH = "preferred_username";
+
+    public static final String ROLES_PATH = "resource_access.virava.roles";
+
+    /**
+     * The projects every valid token grants access to.
+     */
+    public static final int PROJECT_COUNT = 10;
+
+    private static final String PROJECT_IDS = String.join(", ",
+            IntStream.rangeClosed(1, PROJECT_COUNT).mapToObj(Integer::toString).toList());
+
+    public enum Kind {
+        VALID(200),
+        EXPIRED(401),
+        FORGED(401);
+
+        private final int expectedStatus;
+
+        Kind(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+
+        public int expectedStatus() {
+            return expectedStatus;
+        }
+    }
+
+    private final int tokensPerKind;
+
+    private final RotatingJwksStandIn.SigningKey forgingKey;
+
+    private volatile Map<Kind, String[]> tokens;
+
+    public TokenPool(int tokensPerKind, RotatingJwksStandIn jwks) {
+        if (tokensPerKind <= 0) {
+            throw new IllegalArgumentException("Tokens per kind must be positive");
+        }
+        this.tokensPerKind = tokensPerKind;
+        this.forgingKey = jwks.newUnpublishedKey();
+        sign(jwks.getCurrentKey());
+    }
+
+    public static AuthTokenConfig authTokenConfig(String jwkSetUrl) {
+        return AuthTokenConfig.builder()
+                .withUsernamePath(USERNAME_PATH)
+                .withRolesPath(ROLES_PATH)
+                .withIssuer(ISSUER)
+                .withJwkSetUrl(jwkSetUrl)
+                .build();
+    }
+
+    /**
+     * Signs all tokens again with the given key. Forged tokens claim its key id but are signed with another key.
+     *
+     * @param signingKey the current key of the JWKS stand-in
+     */
+    public void sign(RotatingJwksStandIn.SigningKey signingKey) {
+        var signed = new EnumMap<Kind, String[]>(Kind.class);
+        var now = Instant.now();
+        signed.put(Kind.VALID, sign(signingKey, signingKey, now.plus(Duration.ofHours(1))));
+        signed.put(Kind.EXPIRED, sign(signingKey, signingKey, now.minus(Duration.ofHours(1))));
+        signed.put(Kind.FORGED, sign(signingKey, forgingKey, now.plus(Duration.ofHours(1))));
+        tokens = signed;
+    }
+
+    public String get(Kind kind, int index) {
+        var ofKind = tokens.get(kind);
+        return ofKind[index % ofKind.length];
+    }
+
+    private String[] sign(RotatingJwksStandIn.SigningKey claimedKey, RotatingJwksStandIn.SigningKey signingKey,
+                          Instant expiresAt) {
+        var keyPair = signingKey.keyPair();
+        var algorithm = Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate());
+        var signed = new String[tokensPerKind];
+        for (int i = 0; i < tokensPerKind; i++) {
+            signed[i] = JWT.create()
+                    .withKeyId(claimedKey.keyId())
+                    .withIssuer(ISSUER)
+                    .withIssuedAt(expiresAt.minus(Duration.ofHours(2)))
+                    .withExpiresAt(expiresAt)
+                    .withClaim(USERNAME_PATH, "user-" + i)
+                    .withClaim("resource_access", Map.of("virava", Map.of("roles", List.of(Roles.USER.getRoleName()))))
+                    .withClaim("IDS_" + Resources.PROJECT.resource(), PROJECT_IDS)
+                    .sign(algorithm);
+        }
+        return signed;
+    }
+}
@@ -0,0 +1,155 @@
+package com.cleverpine.viravaspringhelper.aop;
+
+import com.cleverpine.viravaspringhelper.core.BaseResource;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAccessDeniedException;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The authorization requirements of a secured method, resolved once per method by
+ * {@link ViravaSecuredPlanRegistry}.
+ */
+public final class AuthorizationPlan {
+
+    private final BaseResource resource;
+
+    private final int requiredScopeMask;
+
+    private final boolean requireAllResourceIds;
+
+    /**
+     * The index of the resource id parameter, or -1 if the method does not take a resource id.
+     */
+    private final int resourceIdParamIndex;
+
+    private final ResourceIdType resourceIdType;
+
+    AuthorizationPlan(BaseResource resource,
+                      int requiredScopeMask,
+                      boolean requireAllResourceIds,
+                      int resourceIdParamIndex,
+                      ResourceIdType resourceIdType) {
+        this.resource = resource;
+        this.requiredScopeMask = requiredScopeMask;
+        this.requireAllResourceIds = requireAllResourceIds;
+        this.resourceIdParamIndex = resourceIdParamIndex;
+        this.resourceIdType = resourceIdType;
+    }
+
+    public BaseResource getResource() {
+        return resource;
+    }
+
+    public int getRequiredScopeMask() {
+        return requiredScopeMask;
+    }
+
+    public boolean isRequireAllResourceIds() {
+        return requireAllResourceIds;
+    }
+
+    /**
+     * @return true if the resource id parameter holds several ids, which are authorized with
+     * {@link #getResourceIds(Object[])}
+     */
+    public boolean hasMultipleResourceIds() {
+        return resourceIdType != null && resourceIdType.multiple;
+    }
+
+    /**
+     * @param args the arguments of the invocation
+     * @return the id of the accessed resource, or {@code null} if the method does not take one or it was not supplied
+     * @throws ViravaAccessDeniedException if the supplied id is not a number
+     */
+    public Long getResourceId(Object[] args) {
+        if (resourceIdParamIndex < 0 || hasMultipleResourceIds()) {
+            return null;
+        }
+        var arg = args[resourceIdParamIndex];
+        if (arg == null) {
+            return null;
+        }
+        return switch (resourceIdType) {
+            case LONG -> (Long) arg;
+            case INTEGER -> ((Integer) arg).longValue();
+            case STRING -> parseResourceId((String) arg);
+            default -> throw new IllegalStateException("Unexpected single resource id type " + resourceIdType);
+        };
+    }
+
+    /**
+     * @param args the arguments of the invocation
+     * @return the ids of the accessed resources, or {@code null} if the method does not take several ids or they
+     * were not supplied
+     * @throws ViravaAccessDeniedException if any of the supplied ids is {@code null}
+     */
+    public long[] getResourceIds(Object[] args) {
+        if (resourceIdParamIndex < 0 || !hasMultipleResourceIds()) {
+            return null;
+        }
+        var arg = args[resourceIdParamIndex];
+        if (arg == null) {
+            return null;
+        }
+        return switch (resourceIdType) {
+            case LONG_ARRAY -> (long[]) arg;
+            case LONG_OBJECT_ARRAY -> toLongArray((Long[]) arg);
+            case LONG_COLLECTION -> toLongArray((Collection<?>) arg);
+            default -> throw new IllegalStateException("Unexpected multiple resource id type " + resourceIdType);
+        };
+    }
+
+    private static long[] toLongArray(Long[] resourceIds) {
+        var ids = new long[resourceIds.length];
+        for (int i = 0; i < resourceIds.length; i++) {
+            if (resourceIds[i] == null) {
+                throw new ViravaAccessDeniedException("User doesn't have required permissions");
+            }
+            ids[i] = resourceIds[i];
+        }
+        return ids;
+    }
+
+    /**
+     * Converts the elements one by one, since a collection declared as {@code Collection<Long>} can hold other
+     * numbers at runtime, e.g. Integers deserialized by Jackson. Anything but a whole number is denied.
+     *
+     * @throws ViravaAccessDeniedException if any of the ids is not a whole number
+     */
+    static long[] toLongArray(Collection<?> resourceIds) {
+        var ids = new long[resourceIds.size()];
+        var count = 0;
+        for (Object resourceId : resourceIds) {
+            if (!(resourceId instanceof Long || resourceId instanceof Integer
+                    || resourceId instanceof Short || resourceId instanceof Byte) || count == ids.length) {
+                throw new ViravaAccessDeniedException("User doesn't have required permissions");
+            }
+            ids[count++] = ((Number) resourceId).longValue();
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    private static Long parseResourceId(String resourceId) {
+        try {
+            return Long.parseLong(resourceId);
+        } catch (NumberFormatException ex) {
+            throw new ViravaAccessDeniedException("User doesn't have required permissions", ex);
+        }
+    }
+
+    enum ResourceIdType {
+        LONG(false),
+        INTEGER(false),
+        STRING(false),
+        LONG_ARRAY(true),
+        LONG_OBJECT_ARRAY(true),
+        LONG_COLLECTION(true);
+
+        private final boolean multiple;
+
+        ResourceIdType(boolean multiple) {
+            this.multiple = multiple;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.cleverpine.viravaspringhelper.aop;
 
 import com.cleverpine.viravaspringhelper.core.BaseResource;
 import com.cleverpine.viravaspringhelper.core.ViravaAuthenticationToken;
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
 import com.cleverpine.viravaspringhelper.core.ViravaPrincipalProvider;
 import com.cleverpine.viravaspringhelper.core.ViravaUserPrincipal;
 import com.cleverpine.viravaspringhelper.dto.ScopeType;
@@ -10,14 +11,28 @@ import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationExc
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 public class BaseViravaSecuredAspect {
 
     private final ViravaPrincipalProvider<?> viravaPrincipalProvider;
 
+    private ViravaMetrics metrics;
+
     public BaseViravaSecuredAspect(ViravaPrincipalProvider<?> viravaPrincipalProvider) {
         this.viravaPrincipalProvider = viravaPrincipalProvider;
     }
 
+    /**
+     * Sets the metrics to record authorization timings and denials to. If not set, authorizations are not timed.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     protected void authorize(
             JoinPoint joinPoint,
             BaseResource resource,
@@ -31,11 +46,22 @@ public class BaseViravaSecuredAspect {
             throw new ViravaAuthenticationException("Missing ViravaUserPrincipal on method requiring authorisation");
         }
 
-        Long resourceId = getMethodSuppliedResourceId(joinPoint, resourceIdParamName);
+        var start = metrics == null ? 0L : System.nanoTime();
+        var resourceIdArg = getMethodSuppliedResourceIdArg(joinPoint, resourceIdParamName);
 
-        if (!principal.isAuthorized(resource, resourceId, requireAllResourceIds, scopeList)) {
-            throw new ViravaAccessDeniedException("User doesn't have required permissions");
+        boolean authorized;
+        if (!requireAllResourceIds && resourceIdArg instanceof long[] resourceIds) {
+            authorized = principal.isAuthorizedForAll(resource, resourceIds, scopeList);
+        } else if (!requireAllResourceIds && resourceIdArg instanceof Long[] resourceIds) {
+            authorized = principal.isAuthorizedForAll(resource, Arrays.asList(resourceIds), scopeList);
+        } else if (!requireAllResourceIds && resourceIdArg instanceof Collection<?> resourceIds) {
+            authorized = principal.isAuthorizedForAll(resource, AuthorizationPlan.toLongArray(resourceIds), scopeList);
+        } else {
+            var resourceId = resourceIdArg instanceof Long ? (Long) resourceIdArg : null;
+            authorized = principal.isAuthorized(resource, resourceId, requireAllResourceIds, scopeList);
         }
+
+        requireAuthorized(authorized, resource, scopeList, start);
     }
 
     protected void authorize(JoinPoint joinPoint, BaseResource resource, ScopeType[] scopeList) {
@@ -44,12 +70,50 @@ public class BaseViravaSecuredAspect {
         ViravaUserPrincipal principal = authentication.getPrincipal();
         if (principal == null) {
             throw new ViravaAuthenticationException("Missing ViravaUserPrincipal");
-        } else if (!principal.isAuthorized(resource, scopeList)) {
+        }
+        var start = metrics == null ? 0L : System.nanoTime();
+        requireAuthorized(principal.isAuthorized(resource, scopeList), resource, scopeList, start);
+    }
+
+    protected void authorize(JoinPoint joinPoint, AuthorizationPlan plan) {
+        var authentication = viravaPrincipalProvider.getAuthentication()
+                .orElseThrow(() -> new ViravaAuthenticationException("Invalid SecurityContextHolder"));
+        var principal = authentication.getPrincipal();
+        if (principal == null) {
+            throw new ViravaAuthenticationException("Missing ViravaUserPrincipal on method requiring authorisation");
+        }
+
+        var start = metrics == null ? 0L : System.nanoTime();
+        var args = joinPoint.getArgs();
+        var resourceIds = plan.getResourceIds(args);
+        boolean authorized;
+        if (resourceIds != null && !plan.isRequireAllResourceIds()) {
+            authorized = principal.isAuthorizedForAll(plan.getResource(), resourceIds, plan.getRequiredScopeMask());
+        } else {
+            authorized = principal.isAuthorized(plan.getResource(), plan.getResourceId(args),
+                    plan.isRequireAllResourceIds(), plan.getRequiredScopeMask());
+        }
+
+        requireAuthorized(authorized, plan.getResource(), plan.getRequiredScopeMask(), start);
+    }
+
+    private void requireAuthorized(boolean authorized, BaseResource resource, ScopeType[] scopeList, long start) {
+        requireAuthorized(authorized, resource, metrics == null || authorized || scopeList == null ? 0 : ScopeType.maskOf(scopeList), start);
+    }
+
+    private void requireAuthorized(boolean authorized, BaseResource resource, int requiredScopeMask, long start) {
+        if (metrics != null) {
+            metrics.recordAuthorization(System.nanoTime() - start, authorized);
+            if (!authorized) {
+                metrics.countDenial(resource, requiredScopeMask);
+            }
+        }
+        if (!authorized) {
             throw new ViravaAccessDeniedException("User doesn't have required permissions");
         }
     }
 
-    private Long getMethodSuppliedResourceId(JoinPoint joinPoint, String resourceIdParamName) {
+    private Object getMethodSuppliedResourceIdArg(JoinPoint joinPoint, String resourceIdParamName) {
         if (resourceIdParamName == null || resourceIdParamName.isEmpty()) {
             return null;
         }
@@ -69,18 +133,13 @@ public class BaseViravaSecuredAspect {
             throw new AssertionError("ViravaSecuredAsspect::authorize parameter count does not match arg count");
         }
 
-        Long resourceId = null;
         for (int i = 0; i < parameters.length; i++) {
             if (parameters[i].equals(resourceIdParamName)) {
-                var arg = args[i];
-                if (arg instanceof Long) {
-                    resourceId = (Long) arg;
-                }
-                break;
+                return args[i];
             }
         }
 
-        return resourceId;
+        return null;
     }
 
 }
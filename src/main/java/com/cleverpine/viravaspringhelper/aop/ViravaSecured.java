@@ -0,0 +1,50 @@
+package com.cleverpine.viravaspringhelper.aop;
+
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Secures a method with the given resource and scopes. Handled by {@link ViravaSecuredAspect}.
+ * <p>
+ * Example:
+ * </p>
+ * <pre>{@code
+ * @ViravaSecured(resource = "PROJECT", scope = ScopeType.READ, resourceIdParamName = "projectId")
+ * public ResponseEntity<Project> getProject(Long projectId) {
+ *     return ResponseEntity.ok(projectService.getProject(projectId));
+ * }
+ * }</pre>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ViravaSecured {
+
+    /**
+     * @return the name of the resource, as returned by {@code BaseResource.resource()}
+     */
+    String resource();
+
+    /**
+     * @return the scopes of which the user needs at least one
+     */
+    ScopeType[] scope();
+
+    /**
+     * @return the name of the method parameter holding the id of the accessed resource. The parameter can be a
+     * {@code Long}, {@code long}, {@code Integer}, {@code int} or a {@code String} holding a number. Methods accessing
+     * several resources can take a {@code long[]}, {@code Long[]} or {@code Collection<Long>}, in which case the user
+     * needs access to every one of the ids.
+     */
+    String resourceIdParamName() default "";
+
+    /**
+     * @return whether the user needs access to all ids of the resource
+     */
+    boolean requireAllResourceIds() default false;
+}
@@ -0,0 +1,28 @@
+package com.cleverpine.viravaspringhelper.aop;
+
+import com.cleverpine.viravaspringhelper.core.ViravaPrincipalProvider;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+
+/**
+ * Authorizes calls to methods annotated with {@link ViravaSecured}, using the plan resolved for each method
+ * by the {@link ViravaSecuredPlanRegistry}.
+ */
+@Aspect
+public class ViravaSecuredAspect extends BaseViravaSecuredAspect {
+
+    private final ViravaSecuredPlanRegistry planRegistry;
+
+    public ViravaSecuredAspect(ViravaPrincipalProvider<?> viravaPrincipalProvider, ViravaSecuredPlanRegistry planRegistry) {
+        super(viravaPrincipalProvider);
+        this.planRegistry = planRegistry;
+    }
+
+    @Before("@annotation(viravaSecured)")
+    public void secure(JoinPoint joinPoint, ViravaSecured viravaSecured) {
+        var method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        authorize(joinPoint, planRegistry.getPlan(method, viravaSecured));
+    }
+}
@@ -0,0 +1,38 @@
+package com.cleverpine.viravaspringhelper.aop;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Validates the {@link ViravaSecured} methods of every bean when it is created, so misconfigured methods
+ * fail the application startup instead of the first request.
+ * <p>
+ * Register it with a {@code static} bean method:
+ * </p>
+ * <pre>{@code
+ * @Bean
+ * public static ViravaSecuredBeanValidator viravaSecuredBeanValidator(ViravaSecuredPlanRegistry planRegistry) {
+ *     return new ViravaSecuredBeanValidator(planRegistry);
+ * }
+ * }</pre>
+ */
+public class ViravaSecuredBeanValidator implements BeanPostProcessor {
+
+    private final ViravaSecuredPlanRegistry planRegistry;
+
+    public ViravaSecuredBeanValidator(ViravaSecuredPlanRegistry planRegistry) {
+        this.planRegistry = planRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        try {
+            planRegistry.validate(AopUtils.getTargetClass(bean));
+        } catch (IllegalStateException ex) {
+            throw new BeanInitializationException(String.format("Invalid @ViravaSecured in bean [%s]", beanName), ex);
+        }
+        return bean;
+    }
+}
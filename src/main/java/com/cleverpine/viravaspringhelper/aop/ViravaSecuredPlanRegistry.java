@@ -0,0 +1,134 @@
+package com.cleverpine.viravaspringhelper.aop;
+
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.BaseResource;
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves and caches the {@link AuthorizationPlan} of every method annotated with {@link ViravaSecured}.
+ * <p>
+ * Plans are resolved once per method: the resource name is looked up in the {@link RoleConfig}, the scopes are
+ * compiled into a mask and the resource id parameter is located by name. Misconfigured methods are reported with
+ * an {@link IllegalStateException}, at startup when {@link ViravaSecuredBeanValidator} is registered.
+ * </p>
+ */
+public class ViravaSecuredPlanRegistry {
+
+    private final Map<String, BaseResource> resourcesByName;
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    private final ConcurrentMap<Method, AuthorizationPlan> plans = new ConcurrentHashMap<>();
+
+    public ViravaSecuredPlanRegistry(RoleConfig<?, ?> roleConfig) {
+        var resources = new HashMap<String, BaseResource>();
+        for (BaseResource resource : roleConfig.getResourceIndex().getResources()) {
+            resources.put(resource.resource(), resource);
+        }
+        this.resourcesByName = Map.copyOf(resources);
+    }
+
+    /**
+     * @param method       the secured method
+     * @param viravaSecured the annotation on the method
+     * @return the authorization plan of the method
+     * @throws IllegalStateException if the annotation does not match the configured resources or the method signature
+     */
+    public AuthorizationPlan getPlan(Method method, ViravaSecured viravaSecured) {
+        var plan = plans.get(method);
+        if (plan == null) {
+            plan = plans.computeIfAbsent(method, m -> createPlan(m, viravaSecured));
+        }
+        return plan;
+    }
+
+    /**
+     * Resolves the plans of all methods of the class annotated with {@link ViravaSecured}.
+     *
+     * @param type the class to validate
+     * @throws IllegalStateException if any of the annotated methods is misconfigured
+     */
+    public void validate(Class<?> type) {
+        ReflectionUtils.doWithMethods(type, method -> {
+            var viravaSecured = AnnotatedElementUtils.findMergedAnnotation(method, ViravaSecured.class);
+            if (viravaSecured != null) {
+                getPlan(method, viravaSecured);
+            }
+        }, ReflectionUtils.USER_DECLARED_METHODS);
+    }
+
+    private AuthorizationPlan createPlan(Method method, ViravaSecured viravaSecured) {
+        var resource = resourcesByName.get(viravaSecured.resource());
+        if (resource == null) {
+            throw new IllegalStateException(String.format(
+                    "@ViravaSecured on %s references unknown resource [%s]", method, viravaSecured.resource()));
+        }
+        var paramName = viravaSecured.resourceIdParamName();
+        if (paramName.isEmpty()) {
+            return new AuthorizationPlan(resource, ScopeType.maskOf(viravaSecured.scope()),
+                    viravaSecured.requireAllResourceIds(), -1, null);
+        }
+        var paramIndex = getParameterIndex(method, paramName);
+        return new AuthorizationPlan(resource, ScopeType.maskOf(viravaSecured.scope()),
+                viravaSecured.requireAllResourceIds(), paramIndex,
+                getResourceIdType(method, paramName, ResolvableType.forMethodParameter(method, paramIndex)));
+    }
+
+    private int getParameterIndex(Method method, String paramName) {
+        var parameterNames = parameterNameDiscoverer.getParameterNames(method);
+        if (parameterNames == null) {
+            throw new IllegalStateException(String.format(
+                    "@ViravaSecured on %s: parameter names are not available, compile with -parameters", method));
+        }
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i].equals(paramName)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException(String.format(
+                "@ViravaSecured on %s references unknown parameter [%s]", method, paramName));
+    }
+
+    private static AuthorizationPlan.ResourceIdType getResourceIdType(Method method, String paramName, ResolvableType paramType) {
+        var type = paramType.toClass();
+        if (type == Long.class || type == long.class) {
+            return AuthorizationPlan.ResourceIdType.LONG;
+        }
+        if (type == Integer.class || type == int.class) {
+            return AuthorizationPlan.ResourceIdType.INTEGER;
+        }
+        if (type == String.class) {
+            return AuthorizationPlan.ResourceIdType.STRING;
+        }
+        if (type == long[].class) {
+            return AuthorizationPlan.ResourceIdType.LONG_ARRAY;
+        }
+        if (type == Long[].class) {
+            return AuthorizationPlan.ResourceIdType.LONG_OBJECT_ARRAY;
+        }
+        if (Collection.class.isAssignableFrom(type) && paramType.asCollection().resolveGeneric(0) == Long.class) {
+            return AuthorizationPlan.ResourceIdType.LONG_COLLECTION;
+        }
+        if (type == UUID.class) {
+            throw new IllegalStateException(String.format(
+                    "@ViravaSecured on %s: parameter [%s] is a UUID, but resource id claims hold numeric ids",
+                    method, paramName));
+        }
+        throw new IllegalStateException(String.format(
+                "@ViravaSecured on %s: parameter [%s] of type %s cannot be used as a resource id",
+                method, paramName, type.getName()));
+    }
+}
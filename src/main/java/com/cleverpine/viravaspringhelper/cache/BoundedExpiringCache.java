@@ -0,0 +1,121 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size bounded, thread-safe cache whose entries expire at an absolute wall clock time.
+ * <p>
+ * When the cache is full, a few entries are sampled and an expired one is evicted if found, otherwise the first
+ * sampled entry is evicted. This keeps both reads and writes O(1) at the cost of an approximate eviction order.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedExpiringCache<K, V> {
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries;
+
+    private final int maximumSize;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    public BoundedExpiringCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache maximum size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@code null} if there is no such value or it has expired.
+     *
+     * @param key the key to look up
+     * @return the cached value or {@code null}
+     */
+    public V get(K key) {
+        var entry = entries.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, entry)) {
+                evictionCount.increment();
+            }
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.value();
+    }
+
+    /**
+     * Maps the key to the value until the given point in time. Values that are already expired are not stored.
+     *
+     * @param key             the key
+     * @param value           the value
+     * @param expiresAtMillis the epoch millisecond at which the mapping expires
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        var now = System.currentTimeMillis();
+        if (expiresAtMillis <= now) {
+            return;
+        }
+        if (entries.size() >= maximumSize && !entries.containsKey(key)) {
+            evictOne(now);
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), entries.size());
+    }
+
+    private void evictOne(long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        Map.Entry<K, Entry<V>> candidate = null;
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE && iterator.hasNext(); i++) {
+            var sampled = iterator.next();
+            if (sampled.getValue().isExpired(now)) {
+                candidate = sampled;
+                break;
+            }
+            if (candidate == null) {
+                candidate = sampled;
+            }
+        }
+        if (candidate != null && entries.remove(candidate.getKey(), candidate.getValue())) {
+            evictionCount.increment();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+
+        boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+}
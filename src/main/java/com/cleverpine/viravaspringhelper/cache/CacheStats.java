@@ -0,0 +1,7 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+public record CacheStats(long hitCount,
+                         long missCount,
+                         long evictionCount,
+                         int size) {
+}
@@ -0,0 +1,138 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import com.cleverpine.viravaspringhelper.core.CustomPrincipalInfo;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Keeps custom principal info per username across requests, so it is not loaded again on every request.
+ * <p>
+ * Concurrent loads for the same username are coalesced: the first caller runs the loader and the others wait for
+ * its result. A {@code null} result is not cached. The cached instances are shared between requests, so they should
+ * be immutable.
+ * </p>
+ *
+ * @param <CPI> the custom principal info type
+ */
+public class CustomPrincipalInfoCache<CPI extends CustomPrincipalInfo> {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+
+    private final BoundedExpiringCache<String, CPI> cache;
+
+    private final ConcurrentMap<String, Load<CPI>> loads = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+
+    public CustomPrincipalInfoCache(int maximumSize, Duration ttl) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Custom principal info cache TTL must be positive");
+        }
+        this.cache = new BoundedExpiringCache<>(maximumSize);
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    public static <CPI extends CustomPrincipalInfo> Builder<CPI> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the info cached for the username, loading it if it is not cached or has expired.
+     * If a load for the same username is already in progress, waits for it instead of starting another one.
+     *
+     * @param username the username
+     * @param loader   loads the info for a username
+     * @return the cached or loaded info
+     * @throws IllegalStateException if the loader asks for the same username again on its own thread, which would
+     *                               otherwise wait for itself forever
+     */
+    public CPI get(String username, Function<String, ? extends CPI> loader) {
+        var cached = cache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        var load = new Load<CPI>();
+        var inFlight = loads.putIfAbsent(username, load);
+        if (inFlight != null) {
+            if (inFlight.loadingThread == Thread.currentThread()) {
+                throw new IllegalStateException(String.format(
+                        "Custom principal info loader for [%s] requested the same username while loading it", username));
+            }
+            return join(inFlight);
+        }
+        try {
+            CPI loaded = loader.apply(username);
+            // an invalidation during the load removes it from the in-flight map, so its result is not cached
+            if (loads.remove(username, load) && loaded != null) {
+                cache.put(username, loaded, System.currentTimeMillis() + ttlMillis);
+            }
+            load.complete(loaded);
+            return loaded;
+        } catch (RuntimeException | Error ex) {
+            loads.remove(username, load);
+            load.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    public void invalidate(String username) {
+        loads.remove(username);
+        cache.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        loads.clear();
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    private CPI join(CompletableFuture<CPI> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+    private static final class Load<CPI> extends CompletableFuture<CPI> {
+
+        private final Thread loadingThread = Thread.currentThread();
+    }
+
+    public static class Builder<CPI extends CustomPrincipalInfo> {
+
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private Duration ttl = DEFAULT_TTL;
+
+        public Builder<CPI> withMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder<CPI> withTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public CustomPrincipalInfoCache<CPI> build() {
+            return new CustomPrincipalInfoCache<>(maximumSize, ttl);
+        }
+    }
+}
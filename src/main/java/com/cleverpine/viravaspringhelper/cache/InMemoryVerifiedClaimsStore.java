@@ -0,0 +1,72 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A {@link VerifiedClaimsStore} kept in the memory of the current process. It lets several filters of one
+ * application share verification work, and behaves like a distributed store in tests and local setups.
+ */
+public class InMemoryVerifiedClaimsStore implements VerifiedClaimsStore {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    public static final Duration DEFAULT_MAXIMUM_TTL = Duration.ofMinutes(5);
+
+    private final BoundedExpiringCache<String, byte[]> cache;
+
+    private final long maximumTtlMillis;
+
+    public InMemoryVerifiedClaimsStore(int maximumSize, Duration maximumTtl) {
+        if (maximumTtl == null || maximumTtl.isNegative() || maximumTtl.isZero()) {
+            throw new IllegalArgumentException("Verified claims store maximum TTL must be positive");
+        }
+        this.cache = new BoundedExpiringCache<>(maximumSize);
+        this.maximumTtlMillis = maximumTtl.toMillis();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public byte[] get(String tokenDigest) {
+        return cache.get(tokenDigest);
+    }
+
+    @Override
+    public void put(String tokenDigest, byte[] encodedClaims, Instant expiresAt) {
+        var maximumExpiry = System.currentTimeMillis() + maximumTtlMillis;
+        var expiresAtMillis = expiresAt == null ? maximumExpiry : Math.min(expiresAt.toEpochMilli(), maximumExpiry);
+        cache.put(tokenDigest, encodedClaims, expiresAtMillis);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    public static class Builder {
+
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private Duration maximumTtl = DEFAULT_MAXIMUM_TTL;
+
+        public Builder withMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder withMaximumTtl(Duration maximumTtl) {
+            this.maximumTtl = maximumTtl;
+            return this;
+        }
+
+        public InMemoryVerifiedClaimsStore build() {
+            return new InMemoryVerifiedClaimsStore(maximumSize, maximumTtl);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
+
+import java.time.Duration;
+
+/**
+ * Remembers recently rejected bearer tokens, so a client retrying with an expired or forged token is rejected again
+ * without verifying the token or looking up its key.
+ * <p>
+ * Only rejections that a retry cannot change are cached, e.g. a bad signature, an expired token or an unknown key id.
+ * Rejections caused by the JWK set being unavailable are not. Entries are keyed by a digest of the token and kept for
+ * a short TTL, since a token with a key id that is unknown now may become valid once the JWK set is refreshed.
+ * </p>
+ */
+public class RejectedTokenCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    public static final Duration DEFAULT_TTL = Duration.ofSeconds(10);
+
+    private final BoundedExpiringCache<String, ViravaAuthenticationException> cache;
+
+    private final long ttlMillis;
+
+    public RejectedTokenCache(int maximumSize, Duration ttl) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Rejected token cache TTL must be positive");
+        }
+        this.cache = new BoundedExpiringCache<>(maximumSize);
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the exception the token was recently rejected with.
+     *
+     * @param token the raw bearer token
+     * @return the cached rejection, or {@code null} if the token was not rejected recently
+     */
+    public ViravaAuthenticationException get(String token) {
+        return cache.get(TokenDigest.of(token));
+    }
+
+    /**
+     * Caches the rejection of a token, unless it was caused by a transient failure.
+     *
+     * @param token     the raw bearer token
+     * @param exception the exception the token was rejected with
+     */
+    public void put(String token, ViravaAuthenticationException exception) {
+        if (ViravaMetrics.RejectionCause.of(exception).isPermanent()) {
+            cache.put(TokenDigest.of(token), exception, System.currentTimeMillis() + ttlMillis);
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    public static class Builder {
+
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private Duration ttl = DEFAULT_TTL;
+
+        public Builder withMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder withTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public RejectedTokenCache build() {
+            return new RejectedTokenCache(maximumSize, ttl);
+        }
+    }
+}
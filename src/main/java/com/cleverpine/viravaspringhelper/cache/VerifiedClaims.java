@@ -0,0 +1,13 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * The claims Virava extracted from a verified token, as kept in a {@link VerifiedClaimsStore}.
+ *
+ * @param claims    the claims, as read by the {@link com.cleverpine.viravaspringhelper.core.StreamingClaimsReader}
+ * @param expiresAt the token's expiry, or {@code null} if it does not expire
+ */
+public record VerifiedClaims(Map<String, Object> claims, Instant expiresAt) {
+}
@@ -0,0 +1,217 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes {@link VerifiedClaims} to a compact binary form for a {@link VerifiedClaimsStore}.
+ * <p>
+ * The claims are JSON values: {@code null}, booleans, strings, numbers, lists and string keyed maps. Each value is
+ * a one byte tag followed by its content. Lengths, counts and whole numbers are written as variable length
+ * integers, strings as UTF-8. The first byte is the format version, so that nodes running different versions
+ * treat each other's entries as misses.
+ * </p>
+ */
+public final class VerifiedClaimsCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte STRING = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte LIST = 6;
+    private static final byte MAP = 7;
+    private static final byte BIG_INTEGER = 8;
+
+    private VerifiedClaimsCodec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if a claim is not a JSON value
+     */
+    public static byte[] encode(VerifiedClaims verifiedClaims) {
+        var out = new ByteArrayOutputStream(256);
+        out.write(VERSION);
+        var expiresAt = verifiedClaims.expiresAt();
+        writeVarLong(out, expiresAt == null ? 0 : expiresAt.getEpochSecond() + 1);
+        writeMap(out, verifiedClaims.claims());
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes were not produced by this version of the codec
+     */
+    public static VerifiedClaims decode(byte[] bytes) {
+        var in = new Reader(bytes);
+        if (in.readByte() != VERSION) {
+            throw new IllegalArgumentException("Unsupported verified claims format version");
+        }
+        var expiresAtSeconds = in.readVarLong();
+        var expiresAt = expiresAtSeconds == 0 ? null : Instant.ofEpochSecond(expiresAtSeconds - 1);
+        if (in.readByte() != MAP) {
+            throw new IllegalArgumentException("Verified claims must be a map");
+        }
+        var claims = in.readMap();
+        if (in.position != bytes.length) {
+            throw new IllegalArgumentException("Unexpected trailing bytes in verified claims");
+        }
+        return new VerifiedClaims(claims, expiresAt);
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, Object value) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof Boolean booleanValue) {
+            out.write(booleanValue ? TRUE : FALSE);
+        } else if (value instanceof String string) {
+            out.write(STRING);
+            writeString(out, string);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.write(LONG);
+            var longValue = ((Number) value).longValue();
+            writeVarLong(out, (longValue << 1) ^ (longValue >> 63));
+        } else if (value instanceof BigInteger bigInteger) {
+            out.write(BIG_INTEGER);
+            writeString(out, bigInteger.toString());
+        } else if (value instanceof Number number) {
+            out.write(DOUBLE);
+            var bits = Double.doubleToRawLongBits(number.doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof List<?> list) {
+            out.write(LIST);
+            writeVarLong(out, list.size());
+            list.forEach(element -> writeValue(out, element));
+        } else if (value instanceof Map<?, ?> map) {
+            writeMap(out, map);
+        } else {
+            throw new IllegalArgumentException(String.format("Cannot encode claim value of type [%s]", value.getClass().getName()));
+        }
+    }
+
+    private static void writeMap(ByteArrayOutputStream out, Map<?, ?> map) {
+        out.write(MAP);
+        writeVarLong(out, map.size());
+        map.forEach((key, value) -> {
+            if (!(key instanceof String name)) {
+                throw new IllegalArgumentException("Claim names must be strings");
+            }
+            writeString(out, name);
+            writeValue(out, value);
+        });
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String string) {
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private Object readValue() {
+            var tag = readByte();
+            return switch (tag) {
+                case NULL -> null;
+                case FALSE -> Boolean.FALSE;
+                case TRUE -> Boolean.TRUE;
+                case STRING -> readString();
+                case LONG -> {
+                    var zigZag = readVarLong();
+                    var value = (zigZag >>> 1) ^ -(zigZag & 1);
+                    yield value == (int) value ? (Object) (int) value : (Object) value;
+                }
+                case DOUBLE -> {
+                    var bits = 0L;
+                    for (int i = 0; i < 8; i++) {
+                        bits = (bits << 8) | (readByte() & 0xFF);
+                    }
+                    yield Double.longBitsToDouble(bits);
+                }
+                case LIST -> {
+                    var size = readCount();
+                    var list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    yield list;
+                }
+                case MAP -> readMap();
+                case BIG_INTEGER -> new BigInteger(readString());
+                default -> throw new IllegalArgumentException(String.format("Unknown claim value tag [%d]", tag));
+            };
+        }
+
+        private Map<String, Object> readMap() {
+            var size = readCount();
+            var map = new HashMap<String, Object>(Math.max(4, size * 4 / 3 + 1));
+            for (int i = 0; i < size; i++) {
+                var name = readString();
+                map.put(name, readValue());
+            }
+            return map;
+        }
+
+        private String readString() {
+            var length = readCount();
+            if (length > bytes.length - position) {
+                throw new IllegalArgumentException("Truncated verified claims");
+            }
+            var string = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+
+        private int readCount() {
+            var count = readVarLong();
+            if (count < 0 || count > bytes.length - position) {
+                throw new IllegalArgumentException("Invalid length in verified claims");
+            }
+            return (int) count;
+        }
+
+        private long readVarLong() {
+            var value = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                var b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid variable length integer in verified claims");
+        }
+
+        private byte readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated verified claims");
+            }
+            return bytes[position++];
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import java.time.Instant;
+
+/**
+ * A store shared by several nodes, keeping the claims of verified tokens so that a token verified by one node is
+ * not verified again by the others. Implementations typically wrap a distributed key-value store.
+ * <p>
+ * Entries are keyed by the {@link TokenDigest} of the token and hold the claims encoded with
+ * {@link VerifiedClaimsCodec}. Anyone able to write to the store can grant any claims to any token, so it must only
+ * be writable by the nodes themselves.
+ * </p>
+ * <p>
+ * Implementations are called on the request path. Exceptions they throw are treated as cache misses, but slow
+ * calls are not, so they should apply short timeouts of their own.
+ * </p>
+ */
+public interface VerifiedClaimsStore {
+
+    /**
+     * @param tokenDigest the digest of the token
+     * @return the encoded claims stored for the token, or {@code null} if there are none
+     */
+    byte[] get(String tokenDigest);
+
+    /**
+     * Stores the encoded claims of a verified token.
+     *
+     * @param tokenDigest   the digest of the token
+     * @param encodedClaims the encoded claims
+     * @param expiresAt     the token's expiry, after which the entry must not be returned, or {@code null} if the
+     *                      token does not expire, in which case the store should apply a maximum TTL of its own
+     */
+    void put(String tokenDigest, byte[] encodedClaims, Instant expiresAt);
+}
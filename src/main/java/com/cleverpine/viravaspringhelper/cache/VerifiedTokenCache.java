@@ -0,0 +1,94 @@
+package com.cleverpine.viravaspringhelper.cache;
+
+import com.cleverpine.viravaspringhelper.core.ViravaAuthenticationToken;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Remembers already verified bearer tokens together with the authentication built from them,
+ * so a repeated token skips signature verification, payload parsing and permission resolution.
+ * <p>
+ * Entries are keyed by a digest of the token and expire at the token's {@code exp} claim,
+ * but never later than the configured maximum TTL.
+ * </p>
+ */
+public class VerifiedTokenCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    public static final Duration DEFAULT_MAXIMUM_TTL = Duration.ofMinutes(5);
+
+    private final BoundedExpiringCache<String, ViravaAuthenticationToken> cache;
+
+    private final long maximumTtlMillis;
+
+    public VerifiedTokenCache(int maximumSize, Duration maximumTtl) {
+        if (maximumTtl == null || maximumTtl.isNegative() || maximumTtl.isZero()) {
+            throw new IllegalArgumentException("Verified token cache maximum TTL must be positive");
+        }
+        this.cache = new BoundedExpiringCache<>(maximumSize);
+        this.maximumTtlMillis = maximumTtl.toMillis();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a fresh copy of the authentication cached for the token.
+     *
+     * @param token the raw bearer token
+     * @return the cached authentication, or {@code null} if the token is not cached or has expired
+     */
+    public ViravaAuthenticationToken get(String token) {
+        var authentication = cache.get(TokenDigest.of(token));
+        return authentication == null ? null : authentication.copy();
+    }
+
+    /**
+     * Caches the authentication built from a verified token.
+     *
+     * @param token          the raw bearer token
+     * @param authentication the authentication built from the token
+     * @param expiresAt      the token's expiry, or {@code null} if the token does not expire
+     */
+    public void put(String token, ViravaAuthenticationToken authentication, Instant expiresAt) {
+        var maximumExpiry = System.currentTimeMillis() + maximumTtlMillis;
+        var expiresAtMillis = expiresAt == null ? maximumExpiry : Math.min(expiresAt.toEpochMilli(), maximumExpiry);
+        cache.put(TokenDigest.of(token), authentication.copy(), expiresAtMillis);
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(TokenDigest.of(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.getStats();
+    }
+
+    public static class Builder {
+
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        private Duration maximumTtl = DEFAULT_MAXIMUM_TTL;
+
+        public Builder withMaximumSize(int maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public Builder withMaximumTtl(Duration maximumTtl) {
+            this.maximumTtl = maximumTtl;
+            return this;
+        }
+
+        public VerifiedTokenCache build() {
+            return new VerifiedTokenCache(maximumSize, maximumTtl);
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package com.cleverpine.viravaspringhelper.config;
 
+import com.cleverpine.viravaspringhelper.core.ClaimPath;
+import com.cleverpine.viravaspringhelper.core.RefreshingJwkProvider;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class AuthTokenConfig {
 
+    public static final int DEFAULT_JWK_SET_CACHE_SIZE = 10;
+
     private final String usernamePath;
 
     private final String emailPath;
@@ -12,10 +21,26 @@ public class AuthTokenConfig {
 
     private final String secret;
 
+    private final Map<String, String> secretsByKeyId;
+
     private final String issuer;
 
     private final String jwkSetUrl;
 
+    private final int jwkSetCacheSize;
+
+    private final Duration jwkSetCacheTtl;
+
+    private final Duration clockLeeway;
+
+    private final ClaimPath usernameClaimPath;
+
+    private final ClaimPath emailClaimPath;
+
+    private final ClaimPath rolesClaimPath;
+
+    private final ClaimPath isCompanyUserClaimPath;
+
     public AuthTokenConfig(String usernamePath,
                            String emailPath,
                            String rolesPath,
@@ -23,13 +48,72 @@ public class AuthTokenConfig {
                            String issuer,
                            String isCompanyUserPath,
                            String jwkSetUrl) {
+        this(usernamePath, emailPath, rolesPath, secret, issuer, isCompanyUserPath, jwkSetUrl,
+                DEFAULT_JWK_SET_CACHE_SIZE, RefreshingJwkProvider.DEFAULT_TTL);
+    }
+
+    public AuthTokenConfig(String usernamePath,
+                           String emailPath,
+                           String rolesPath,
+                           String secret,
+                           String issuer,
+                           String isCompanyUserPath,
+                           String jwkSetUrl,
+                           int jwkSetCacheSize,
+                           Duration jwkSetCacheTtl) {
+        this(usernamePath, emailPath, rolesPath, secret, issuer, isCompanyUserPath, jwkSetUrl,
+                jwkSetCacheSize, jwkSetCacheTtl, Duration.ZERO);
+    }
+
+    public AuthTokenConfig(String usernamePath,
+                           String emailPath,
+                           String rolesPath,
+                           String secret,
+                           String issuer,
+                           String isCompanyUserPath,
+                           String jwkSetUrl,
+                           int jwkSetCacheSize,
+                           Duration jwkSetCacheTtl,
+                           Duration clockLeeway) {
+        this(usernamePath, emailPath, rolesPath, secret, Map.of(), issuer, isCompanyUserPath, jwkSetUrl,
+                jwkSetCacheSize, jwkSetCacheTtl, clockLeeway);
+    }
+
+    /**
+     * @param secretsByKeyId HMAC secrets by the {@code kid} of the tokens they sign. Several secrets can be valid
+     *                       at once, e.g. while rotating them. Tokens without a known {@code kid} are verified with
+     *                       {@code secret}, if set.
+     * @throws IllegalArgumentException if the clock leeway is negative, or a claim path has a malformed array index
+     */
+    public AuthTokenConfig(String usernamePath,
+                           String emailPath,
+                           String rolesPath,
+                           String secret,
+                           Map<String, String> secretsByKeyId,
+                           String issuer,
+                           String isCompanyUserPath,
+                           String jwkSetUrl,
+                           int jwkSetCacheSize,
+                           Duration jwkSetCacheTtl,
+                           Duration clockLeeway) {
+        if (clockLeeway == null || clockLeeway.isNegative()) {
+            throw new IllegalArgumentException("Clock leeway cannot be negative");
+        }
         this.usernamePath = usernamePath;
         this.emailPath = emailPath;
         this.rolesPath = rolesPath;
         this.isCompanyUserPath = isCompanyUserPath;
         this.secret = secret;
+        this.secretsByKeyId = secretsByKeyId == null ? Map.of() : Map.copyOf(secretsByKeyId);
         this.issuer = issuer;
         this.jwkSetUrl = jwkSetUrl;
+        this.jwkSetCacheSize = jwkSetCacheSize;
+        this.jwkSetCacheTtl = jwkSetCacheTtl;
+        this.clockLeeway = clockLeeway;
+        this.usernameClaimPath = ClaimPath.of(usernamePath);
+        this.emailClaimPath = ClaimPath.of(emailPath);
+        this.rolesClaimPath = ClaimPath.of(rolesPath);
+        this.isCompanyUserClaimPath = ClaimPath.of(isCompanyUserPath);
     }
 
     public static Builder builder() {
@@ -56,6 +140,10 @@ public class AuthTokenConfig {
         return secret;
     }
 
+    public Map<String, String> getSecretsByKeyId() {
+        return secretsByKeyId;
+    }
+
     public String getIssuer() {
         return issuer;
     }
@@ -64,6 +152,34 @@ public class AuthTokenConfig {
         return jwkSetUrl;
     }
 
+    public int getJwkSetCacheSize() {
+        return jwkSetCacheSize;
+    }
+
+    public Duration getJwkSetCacheTtl() {
+        return jwkSetCacheTtl;
+    }
+
+    public Duration getClockLeeway() {
+        return clockLeeway;
+    }
+
+    public ClaimPath getUsernameClaimPath() {
+        return usernameClaimPath;
+    }
+
+    public ClaimPath getEmailClaimPath() {
+        return emailClaimPath;
+    }
+
+    public ClaimPath getRolesClaimPath() {
+        return rolesClaimPath;
+    }
+
+    public ClaimPath getIsCompanyUserClaimPath() {
+        return isCompanyUserClaimPath;
+    }
+
     public static class Builder {
         private String usernamePath;
 
@@ -75,10 +191,18 @@ public class AuthTokenConfig {
 
         private String secret;
 
+        private final Map<String, String> secretsByKeyId = new LinkedHashMap<>();
+
         private String issuer;
 
         private String jwkSetUrl;
 
+        private int jwkSetCacheSize = DEFAULT_JWK_SET_CACHE_SIZE;
+
+        private Duration jwkSetCacheTtl = RefreshingJwkProvider.DEFAULT_TTL;
+
+        private Duration clockLeeway = Duration.ZERO;
+
         public Builder withUsernamePath(String usernamePath) {
             this.usernamePath = usernamePath;
             return this;
@@ -104,6 +228,15 @@ public class AuthTokenConfig {
             return this;
         }
 
+        /**
+         * Adds an HMAC secret verifying the tokens with the given {@code kid}. Can be called several times to keep
+         * the previous secrets valid while rotating them.
+         */
+        public Builder withSecret(String keyId, String secret) {
+            this.secretsByKeyId.put(keyId, secret);
+            return this;
+        }
+
         public Builder withIssuer(String issuer) {
             this.issuer = issuer;
             return this;
@@ -114,15 +247,45 @@ public class AuthTokenConfig {
             return this;
         }
 
+        /**
+         * Sets the maximum number of key ids whose verifiers are kept, for the keys tokens were looked up with.
+         * The whole fetched JWK set is always kept, so any key id in it can be resolved. Defaults to 10.
+         */
+        public Builder withJwkSetCacheSize(int jwkSetCacheSize) {
+            this.jwkSetCacheSize = jwkSetCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets how long a fetched JWK set is used before it is refreshed. Defaults to 24 hours.
+         */
+        public Builder withJwkSetCacheTtl(Duration jwkSetCacheTtl) {
+            this.jwkSetCacheTtl = jwkSetCacheTtl;
+            return this;
+        }
+
+        /**
+         * Sets how much clock skew is tolerated when checking the {@code exp}, {@code iat} and {@code nbf} claims.
+         * Applied with second precision. Defaults to none.
+         */
+        public Builder withClockLeeway(Duration clockLeeway) {
+            this.clockLeeway = clockLeeway;
+            return this;
+        }
+
         public AuthTokenConfig build() {
             return new AuthTokenConfig(
                     usernamePath,
                     emailPath,
                     rolesPath,
                     secret,
+                    secretsByKeyId,
                     issuer,
                     isCompanyUserPath,
-                    jwkSetUrl
+                    jwkSetUrl,
+                    jwkSetCacheSize,
+                    jwkSetCacheTtl,
+                    clockLeeway
             );
         }
     }
@@ -1,24 +1,45 @@
 package com.cleverpine.viravaspringhelper.config;
 
+import com.cleverpine.viravaspringhelper.cache.BoundedExpiringCache;
+import com.cleverpine.viravaspringhelper.cache.CacheStats;
 import com.cleverpine.viravaspringhelper.core.BaseResource;
 import com.cleverpine.viravaspringhelper.core.BaseRole;
+import com.cleverpine.viravaspringhelper.core.ResourceIndex;
+import com.cleverpine.viravaspringhelper.core.RolePermissions;
 import com.cleverpine.viravaspringhelper.dto.Permission;
-import com.cleverpine.viravaspringhelper.dto.PermissionInitializer;
 import com.cleverpine.viravaspringhelper.dto.ScopeType;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
+/**
+ * Resolves the permissions granted by the roles of a token.
+ * <p>
+ * The role mapping can be replaced at runtime with {@link #reloadRoleMapping(Map)}. The new mapping is compiled
+ * on the reloading thread and published with a single reference write, together with a fresh permissions cache,
+ * so permission lookups never block and always see either the old or the new mapping as a whole.
+ * </p>
+ */
 public class RoleConfig<R extends BaseRole, RE extends BaseResource> {
 
-    private final Map<String, Map<BaseResource, Set<ScopeType>>> permissionMap;
+    private static final int ROLE_PERMISSIONS_CACHE_SIZE = 512;
+
+    private final List<R> roleList;
 
     private final List<RE> resourceList;
 
+    private final ResourceIndex resourceIndex;
+
+    private final List<Consumer<RoleMappingDiff>> reloadListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+
+    private volatile long roleMappingGeneration;
+
     public RoleConfig(R[] roleArray, RE[] resourceArray) {
         if (roleArray == null || roleArray.length == 0) {
             throw new AssertionError("Role array cannot be null or empty!");
@@ -26,8 +47,10 @@ public class RoleConfig<R extends BaseRole, RE extends BaseResource> {
         if (resourceArray == null || resourceArray.length == 0) {
             throw new AssertionError("Resource array cannot be null or empty!");
         }
-        this.permissionMap = getPermissionMap(List.of(roleArray));
+        this.roleList = List.of(roleArray);
         this.resourceList = List.of(resourceArray);
+        this.resourceIndex = ResourceIndex.of(resourceList);
+        this.snapshot = new Snapshot(getRoleScopeMasks(roleList));
     }
 
     public RoleConfig(List<R> roleList, List<RE> resourceList) {
@@ -37,8 +60,10 @@ public class RoleConfig<R extends BaseRole, RE extends BaseResource> {
         if (resourceList == null || resourceList.isEmpty()) {
             throw new AssertionError("Resource list cannot be null or empty!");
         }
-        this.permissionMap = getPermissionMap(roleList);
+        this.roleList = List.copyOf(roleList);
         this.resourceList = Collections.unmodifiableList(resourceList);
+        this.resourceIndex = ResourceIndex.of(resourceList);
+        this.snapshot = new Snapshot(getRoleScopeMasks(roleList));
     }
 
     public RoleConfig(R[] roleArray, RE[] resourceArray, Map<String, List<String>> roleMapping) {
@@ -51,58 +76,186 @@ public class RoleConfig<R extends BaseRole, RE extends BaseResource> {
         if (roleMapping == null) {
             throw new AssertionError("Role mapping cannot be null or empty!");
         }
-        this.permissionMap = getPermissionMap(List.of(roleArray), roleMapping);
+        this.roleList = List.of(roleArray);
         this.resourceList = List.of(resourceArray);
+        this.resourceIndex = ResourceIndex.of(resourceList);
+        this.snapshot = new Snapshot(getRoleScopeMasks(roleList, roleMapping));
     }
 
-    private Map<String, Map<BaseResource, Set<ScopeType>>> getPermissionMap(List<R> roleList) {
-        return roleList.stream().collect(Collectors.toUnmodifiableMap(
-                R::getRoleName, r -> getResourceScopeMap(r.getPermissionList())));
+    /**
+     * Replaces the role mapping. The permissions of the new mapping are compiled before they are published, and
+     * requests resolving permissions meanwhile keep using the previous mapping without waiting. If the mapping
+     * grants the same scopes as before, the current mapping and its cached permissions are kept.
+     *
+     * @param roleMapping the custom role names of each role, by lower case role name
+     * @return the roles whose permissions were added, removed or changed by the new mapping
+     * @throws IllegalArgumentException if the mapping lacks one of the roles
+     */
+    public synchronized RoleMappingDiff reloadRoleMapping(Map<String, List<String>> roleMapping) {
+        if (roleMapping == null) {
+            throw new IllegalArgumentException("Role mapping cannot be null");
+        }
+        for (R role : roleList) {
+            if (roleMapping.get(role.getRoleName().toLowerCase()) == null) {
+                throw new IllegalArgumentException(
+                        String.format("Role mapping is missing role [%s]", role.getRoleName().toLowerCase()));
+            }
+        }
+        var roleScopeMasks = getRoleScopeMasks(roleList, roleMapping);
+        var diff = RoleMappingDiff.of(snapshot.roleScopeMasks(), roleScopeMasks);
+        if (!diff.isEmpty()) {
+            snapshot = new Snapshot(roleScopeMasks);
+            roleMappingGeneration++;
+            reloadListeners.forEach(listener -> listener.accept(diff));
+        }
+        return diff;
     }
 
-    private Map<String, Map<BaseResource, Set<ScopeType>>> getPermissionMap(List<R> roleList, Map<String, List<String>> roleMappings) {
-        var permissionMap = new HashMap<String, Map<BaseResource, Set<ScopeType>>>();
+    /**
+     * Registers a listener called after a reload changed the permissions of any role, e.g. to drop authentications
+     * cached with the previous permissions.
+     *
+     * @param reloadListener the listener
+     * @return a handle removing the listener again when run
+     */
+    public Runnable addReloadListener(Consumer<RoleMappingDiff> reloadListener) {
+        reloadListeners.add(reloadListener);
+        return () -> reloadListeners.remove(reloadListener);
+    }
+
+    /**
+     * Returns a number that changes whenever a reload changes the permissions of any role. Reading it before
+     * resolving permissions and again after caching them tells whether a reload raced with the caching and the
+     * reload listeners may have run before the cached entry was added.
+     *
+     * @return the generation of the current role mapping
+     */
+    public long getRoleMappingGeneration() {
+        return roleMappingGeneration;
+    }
+
+    private Map<String, byte[]> getRoleScopeMasks(List<R> roleList) {
+        var scopeMasks = new HashMap<String, byte[]>();
+        for (R role : roleList) {
+            if (scopeMasks.containsKey(role.getRoleName())) {
+                throw new IllegalStateException(String.format("Duplicate role name [%s]", role.getRoleName()));
+            }
+            putIfGranting(scopeMasks, role.getRoleName(), getScopeMasks(role.getPermissionList()));
+        }
+        return Map.copyOf(scopeMasks);
+    }
+
+    private Map<String, byte[]> getRoleScopeMasks(List<R> roleList, Map<String, List<String>> roleMappings) {
+        var scopeMasks = new HashMap<String, byte[]>();
 
         for (R role : roleList) {
+            var roleScopeMasks = getScopeMasks(role.getPermissionList());
             for (String customRole : roleMappings.get(role.getRoleName().toLowerCase())) {
-                permissionMap.put(customRole.toUpperCase(), getResourceScopeMap(role.getPermissionList()));
+                putIfGranting(scopeMasks, customRole.toUpperCase(), roleScopeMasks);
             }
         }
 
-        return permissionMap;
+        return Map.copyOf(scopeMasks);
+    }
+
+    private static void putIfGranting(Map<String, byte[]> scopeMasks, String roleName, byte[] roleScopeMasks) {
+        for (byte scopeMask : roleScopeMasks) {
+            if (scopeMask != 0) {
+                scopeMasks.put(roleName, roleScopeMasks);
+                return;
+            }
+        }
+        scopeMasks.remove(roleName);
     }
 
-    private Map<BaseResource, Set<ScopeType>> getResourceScopeMap(List<Permission> permissionList) {
-        return permissionList.stream().collect(Collectors.toMap(Permission::getResource, Permission::getScopeTypes));
+    private byte[] getScopeMasks(List<Permission> permissionList) {
+        var scopeMasks = new byte[resourceIndex.size()];
+        for (Permission permission : permissionList) {
+            var index = resourceIndex.indexOf(permission.getResource());
+            if (index < 0) {
+                throw new AssertionError(String.format(
+                        "Improperly configured RoleConfig! "
+                        + "It has to be supplied with the full list of Resources."
+                        + "Resource [%s] is missing.", permission.getResource().resource()));
+            }
+            scopeMasks[index] |= (byte) ScopeType.maskOf(permission.getScopeTypes());
+        }
+        return scopeMasks;
     }
 
-    private Map<BaseResource, PermissionInitializer> getDefaultPermissionList() {
-        return resourceList.stream()
-                .collect(Collectors.toMap(Function.identity(), PermissionInitializer::new));
+    public ResourceIndex getResourceIndex() {
+        return resourceIndex;
     }
 
     public List<Permission> getRolePermissionList(List<String> roleList) {
         if (roleList == null) {
             return null;
         }
-        var builderMap = getDefaultPermissionList();
-        for(String role : roleList) {
-            var resourceScopes = permissionMap.get(role);
-            if (resourceScopes == null) {
-                continue;
+        return getRolePermissions(roleList).getPermissionList();
+    }
+
+    /**
+     * Resolves the permissions granted by the given roles. The result is cached per distinct combination of
+     * the roles that grant any permission, so users with the same effective roles share the same instance.
+     *
+     * @param roleList the role names from the token
+     * @return the resolved permissions, or {@code null} if the role list is {@code null}
+     */
+    public RolePermissions getRolePermissions(List<String> roleList) {
+        if (roleList == null) {
+            return null;
+        }
+        var current = snapshot;
+        var effectiveRoles = getEffectiveRoles(current.roleScopeMasks(), roleList);
+        var rolePermissions = current.rolePermissionsCache().get(effectiveRoles);
+        if (rolePermissions == null) {
+            rolePermissions = resolveRolePermissions(current.roleScopeMasks(), effectiveRoles);
+            current.rolePermissionsCache().put(effectiveRoles, rolePermissions, Long.MAX_VALUE);
+        }
+        return rolePermissions;
+    }
+
+    /**
+     * @return the statistics of the permissions cache of the current role mapping
+     */
+    public CacheStats getRolePermissionsCacheStats() {
+        return snapshot.rolePermissionsCache().getStats();
+    }
+
+    private static List<String> getEffectiveRoles(Map<String, byte[]> roleScopeMasks, List<String> roleList) {
+        var effectiveRoles = new ArrayList<String>(roleList.size());
+        for (String role : roleList) {
+            if (role != null && roleScopeMasks.containsKey(role) && !effectiveRoles.contains(role)) {
+                effectiveRoles.add(role);
             }
-            for (Map.Entry<BaseResource, Set<ScopeType>> entry : resourceScopes.entrySet()) {
-                var builder = builderMap.get(entry.getKey());
-                if (builder == null) {
-                    throw new AssertionError(String.format(
-                            "Improperly configured RoleConfig! "
-                            + "It has to be supplied with the full list of Resources."
-                            + "Resource [%s] is missing.", entry.getKey().resource()));
-                }
-                builder.addScope(entry.getValue());
+        }
+        Collections.sort(effectiveRoles);
+        return List.copyOf(effectiveRoles);
+    }
+
+    private RolePermissions resolveRolePermissions(Map<String, byte[]> roleScopeMasks, List<String> roleList) {
+        var scopeMasks = new byte[resourceIndex.size()];
+        for (String role : roleList) {
+            var roleMasks = roleScopeMasks.get(role);
+            for (int i = 0; i < scopeMasks.length; i++) {
+                scopeMasks[i] |= roleMasks[i];
             }
         }
-        return builderMap.values().stream().map(Permission::of).collect(Collectors.toList());
+        return RolePermissions.of(resourceIndex, scopeMasks);
     }
 
+    /**
+     * A compiled role mapping with the permissions resolved from it.
+     *
+     * @param roleScopeMasks       the scope masks granted by each role that grants any permission, aligned with
+     *                             {@link #resourceIndex}
+     * @param rolePermissionsCache the permissions resolved per combination of effective roles
+     */
+    private record Snapshot(Map<String, byte[]> roleScopeMasks,
+                            BoundedExpiringCache<List<String>, RolePermissions> rolePermissionsCache) {
+
+        Snapshot(Map<String, byte[]> roleScopeMasks) {
+            this(roleScopeMasks, new BoundedExpiringCache<>(ROLE_PERMISSIONS_CACHE_SIZE));
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package com.cleverpine.viravaspringhelper.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The roles whose permissions changed with a role mapping reload.
+ *
+ * @param addedRoles   the roles granting permissions only with the new mapping
+ * @param removedRoles the roles granting permissions only with the previous mapping
+ * @param changedRoles the roles granting different permissions with the new mapping
+ */
+public record RoleMappingDiff(Set<String> addedRoles,
+                             Set<String> removedRoles,
+                             Set<String> changedRoles) {
+
+    public static final RoleMappingDiff EMPTY = new RoleMappingDiff(Set.of(), Set.of(), Set.of());
+
+    static RoleMappingDiff of(Map<String, byte[]> previousScopeMasks, Map<String, byte[]> scopeMasks) {
+        var addedRoles = new TreeSet<String>();
+        var changedRoles = new TreeSet<String>();
+        scopeMasks.forEach((role, roleScopeMasks) -> {
+            var previousRoleScopeMasks = previousScopeMasks.get(role);
+            if (previousRoleScopeMasks == null) {
+                addedRoles.add(role);
+            } else if (!Arrays.equals(previousRoleScopeMasks, roleScopeMasks)) {
+                changedRoles.add(role);
+            }
+        });
+        var removedRoles = new TreeSet<String>(previousScopeMasks.keySet());
+        removedRoles.removeAll(scopeMasks.keySet());
+        return new RoleMappingDiff(Collections.unmodifiableSet(addedRoles),
+                Collections.unmodifiableSet(removedRoles), Collections.unmodifiableSet(changedRoles));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of roles added, removed or changed
+     */
+    public int size() {
+        return addedRoles.size() + removedRoles.size() + changedRoles.size();
+    }
+}
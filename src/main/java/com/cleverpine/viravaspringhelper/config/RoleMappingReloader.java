@@ -0,0 +1,172 @@
+package com.cleverpine.viravaspringhelper.config;
+
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reloads the role mapping of a {@link RoleConfig} from a file or any other source, on demand or periodically on a
+ * background thread. See {@link RoleConfig#reloadRoleMapping(Map)} for how a new mapping is published.
+ * <p>
+ * A failed reload keeps the current mapping; the failure is returned by {@link #getLastFailure()} until the next
+ * successful reload.
+ * </p>
+ */
+public class RoleMappingReloader implements AutoCloseable {
+
+    private final RoleConfig<?, ?> roleConfig;
+    private final Supplier<Map<String, List<String>>> roleMappingSource;
+    private ScheduledExecutorService scheduler;
+    private ViravaMetrics metrics;
+    private volatile Exception lastFailure;
+
+    /**
+     * @param roleConfig        the config to reload
+     * @param roleMappingSource supplies the current role mapping, in the format given to the {@link RoleConfig}
+     *                          constructor, or {@code null} if the mapping has not changed since the last call
+     */
+    public RoleMappingReloader(RoleConfig<?, ?> roleConfig, Supplier<Map<String, List<String>>> roleMappingSource) {
+        this.roleConfig = Objects.requireNonNull(roleConfig, "Role config cannot be null");
+        this.roleMappingSource = Objects.requireNonNull(roleMappingSource, "Role mapping source cannot be null");
+    }
+
+    /**
+     * Creates a reloader reading the role mapping from a JSON file of the form
+     * {@code {"admin": ["COMPANY_ADMIN"], "user": ["COMPANY_USER", "GUEST"]}}. The file is read again only when
+     * its modification time has changed.
+     *
+     * @param roleConfig   the config to reload
+     * @param file         the role mapping file
+     * @param objectMapper the mapper to read the file with
+     * @return the reloader
+     */
+    public static RoleMappingReloader fromFile(RoleConfig<?, ?> roleConfig, Path file, ObjectMapper objectMapper) {
+        return new RoleMappingReloader(roleConfig, new FileRoleMappingSource(file, objectMapper));
+    }
+
+    /**
+     * Sets the metrics to record reloads to. If not set, reloads are not timed.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Loads the role mapping and publishes it if it changed any role's permissions.
+     *
+     * @return the roles whose permissions changed, {@link RoleMappingDiff#EMPTY} if the source reported no change
+     * @throws RuntimeException if the mapping could not be loaded or is invalid; the current mapping is then kept
+     */
+    public RoleMappingDiff reload() {
+        var start = metrics == null ? 0L : System.nanoTime();
+        try {
+            var roleMapping = roleMappingSource.get();
+            if (roleMapping == null) {
+                record(start, true, 0);
+                return RoleMappingDiff.EMPTY;
+            }
+            var diff = roleConfig.reloadRoleMapping(roleMapping);
+            lastFailure = null;
+            record(start, true, diff.size());
+            return diff;
+        } catch (RuntimeException ex) {
+            lastFailure = ex;
+            record(start, false, 0);
+            throw ex;
+        }
+    }
+
+    /**
+     * Starts reloading the role mapping periodically on a background daemon thread, until {@link #close()}.
+     *
+     * @param interval the time between the end of a reload and the start of the next one
+     */
+    public synchronized void start(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Role mapping reload interval must be positive");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Role mapping reloader is already started");
+        }
+        var executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, "virava-role-mapping-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::reloadQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    /**
+     * @return the failure of the last reload of a changed mapping, or {@code null} if it succeeded
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException ignored) {
+            // kept in lastFailure, the next run tries again
+        }
+    }
+
+    private void record(long start, boolean successful, int changedRoles) {
+        if (metrics != null) {
+            metrics.recordRoleMappingReload(System.nanoTime() - start, successful, changedRoles);
+        }
+    }
+
+    private static final class FileRoleMappingSource implements Supplier<Map<String, List<String>>> {
+
+        private final Path file;
+        private final ObjectMapper objectMapper;
+        private FileTime lastModifiedTime;
+
+        private FileRoleMappingSource(Path file, ObjectMapper objectMapper) {
+            this.file = Objects.requireNonNull(file, "Role mapping file cannot be null");
+            this.objectMapper = Objects.requireNonNull(objectMapper, "Object mapper cannot be null");
+        }
+
+        @Override
+        public synchronized Map<String, List<String>> get() {
+            try {
+                var modifiedTime = Files.getLastModifiedTime(file);
+                if (modifiedTime.equals(lastModifiedTime)) {
+                    return null;
+                }
+                Map<String, List<String>> roleMapping = objectMapper.readValue(file.toFile(), new TypeReference<>() {
+                });
+                lastModifiedTime = modifiedTime;
+                return roleMapping;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.cache.BoundedExpiringCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled path to a claim in the token payload.
+ * <p>
+ * Paths are made of dot separated field names, each optionally followed by one or more array indices,
+ * e.g. {@code resource_access.cleverpine.roles} or {@code groups[0].name}. A path is compiled once and can then
+ * be resolved against any number of payloads without splitting or allocating.
+ * </p>
+ */
+public final class ClaimPath {
+
+    private static final int COMPILED_PATHS_CACHE_SIZE = 1024;
+
+    private static final BoundedExpiringCache<String, ClaimPath> compiledPaths =
+            new BoundedExpiringCache<>(COMPILED_PATHS_CACHE_SIZE);
+
+    private final String path;
+
+    /**
+     * The field name of each segment, or {@code null} for array index segments.
+     */
+    private final String[] fieldNames;
+
+    private final int[] indices;
+
+    private ClaimPath(String path, String[] fieldNames, int[] indices) {
+        this.path = path;
+        this.fieldNames = fieldNames;
+        this.indices = indices;
+    }
+
+    /**
+     * Returns the compiled form of the path. Compiled paths are cached, so calling this with the same path
+     * repeatedly does not compile it again.
+     *
+     * @param path the dotted claim path
+     * @return the compiled path, or {@code null} if the path is {@code null}
+     * @throws IllegalArgumentException if the path has a malformed array index
+     */
+    public static ClaimPath of(String path) {
+        if (path == null) {
+            return null;
+        }
+        var claimPath = compiledPaths.get(path);
+        if (claimPath == null) {
+            claimPath = compile(path);
+            compiledPaths.put(path, claimPath, Long.MAX_VALUE);
+        }
+        return claimPath;
+    }
+
+    private static ClaimPath compile(String path) {
+        var fieldNames = new ArrayList<String>();
+        var indices = new ArrayList<Integer>();
+        for (String segment : path.split("\\.", -1)) {
+            var bracket = segment.indexOf('[');
+            if (bracket != 0) {
+                fieldNames.add(bracket < 0 ? segment : segment.substring(0, bracket));
+                indices.add(-1);
+            }
+            while (bracket >= 0) {
+                var closingBracket = segment.indexOf(']', bracket);
+                if (closingBracket < 0) {
+                    throw new IllegalArgumentException(String.format("Invalid claim path [%s]: missing ]", path));
+                }
+                fieldNames.add(null);
+                indices.add(parseIndex(path, segment.substring(bracket + 1, closingBracket)));
+                bracket = closingBracket + 1 == segment.length() ? -1 : closingBracket + 1;
+                if (bracket >= 0 && segment.charAt(bracket) != '[') {
+                    throw new IllegalArgumentException(String.format("Invalid claim path [%s]: expected [", path));
+                }
+            }
+        }
+        return new ClaimPath(path,
+                fieldNames.toArray(String[]::new),
+                indices.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static int parseIndex(String path, String index) {
+        try {
+            var parsedIndex = Integer.parseInt(index);
+            if (parsedIndex < 0) {
+                throw new IllegalArgumentException(String.format("Invalid claim path [%s]: negative index", path));
+            }
+            return parsedIndex;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(String.format("Invalid claim path [%s]: bad index [%s]", path, index), ex);
+        }
+    }
+
+    /**
+     * @param json the payload to resolve the path against
+     * @return the value at the path, or {@code null} if any segment of the path is missing
+     */
+    public Object resolve(Map<String, ?> json) {
+        Object current = json;
+        for (int i = 0; i < fieldNames.length && current != null; i++) {
+            if (fieldNames[i] != null) {
+                current = current instanceof Map ? ((Map<?, ?>) current).get(fieldNames[i]) : null;
+            } else if (current instanceof List<?> list) {
+                current = indices[i] < list.size() ? list.get(indices[i]) : null;
+            } else {
+                current = null;
+            }
+        }
+        return current;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    int getSegmentCount() {
+        return fieldNames.length;
+    }
+
+    /**
+     * @return the field name of the segment, or {@code null} if the segment is an array index
+     */
+    String getFieldName(int segment) {
+        return fieldNames[segment];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ClaimPath other && path.equals(other.path));
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,305 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.cache.BoundedExpiringCache;
+import com.cleverpine.viravaspringhelper.cache.CacheStats;
+import com.cleverpine.viravaspringhelper.cache.TokenDigest;
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaims;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticates opaque tokens against an OAuth 2.0 token introspection endpoint (RFC 7662) and returns the claims of
+ * active tokens, for use with {@link com.cleverpine.viravaspringhelper.filter.ViravaFilter#ofClaimsAuthenticator}.
+ * <ul>
+ *     <li>An active token is cached until its {@code exp} claim, but never longer than the cache's maximum TTL,
+ *     which bounds how long a revoked token is still accepted.</li>
+ *     <li>Concurrent requests with the same token share one introspection call.</li>
+ *     <li>At most {@code maximumConcurrentIntrospections} calls are outstanding at a time. A call that cannot start
+ *     within the timeout fails, and the token is rejected.</li>
+ * </ul>
+ * A token that is not active is rejected with a {@link TokenIntrospectionException} cause that
+ * {@link TokenIntrospectionException#isInactive() is inactive}; a failed call with one that is not.
+ */
+public class IntrospectionTokenAuthenticator implements TokenAuthenticator<VerifiedClaims> {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2);
+
+    public static final int DEFAULT_MAXIMUM_CONCURRENT_INTROSPECTIONS = 64;
+
+    public static final int DEFAULT_CACHE_MAXIMUM_SIZE = 10_000;
+
+    public static final Duration DEFAULT_CACHE_MAXIMUM_TTL = Duration.ofMinutes(1);
+
+    private static final String ACTIVE_CLAIM = "active";
+
+    private static final String EXPIRES_AT_CLAIM = "exp";
+
+    private static final String TOKEN_NOT_ACTIVE = "Token is not active";
+
+    private final URI introspectionUri;
+    private final String authorizationHeader;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final Semaphore introspectionPermits;
+    private final BoundedExpiringCache<String, VerifiedClaims> cache;
+    private final long cacheMaximumTtlMillis;
+    private final Map<String, CompletableFuture<VerifiedClaims>> introspections = new ConcurrentHashMap<>();
+    private ViravaMetrics metrics;
+
+    private IntrospectionTokenAuthenticator(Builder builder) {
+        requirePositive(builder.timeout, "Token introspection timeout must be positive");
+        requirePositive(builder.cacheMaximumTtl, "Token introspection cache maximum TTL must be positive");
+        if (builder.maximumConcurrentIntrospections <= 0) {
+            throw new IllegalArgumentException("Maximum concurrent token introspections must be positive");
+        }
+        this.introspectionUri = builder.introspectionUri;
+        this.authorizationHeader = builder.clientId == null ? null : "Basic " + Base64.getEncoder().encodeToString(
+                (encode(builder.clientId) + ":" + encode(builder.clientSecret)).getBytes(StandardCharsets.UTF_8));
+        this.httpClient = builder.httpClient == null ?
+                HttpClient.newBuilder().connectTimeout(builder.timeout).build() :
+                builder.httpClient;
+        this.objectMapper = builder.objectMapper == null ? new ObjectMapper() : builder.objectMapper;
+        this.timeout = builder.timeout;
+        this.introspectionPermits = new Semaphore(builder.maximumConcurrentIntrospections);
+        this.cache = new BoundedExpiringCache<>(builder.cacheMaximumSize);
+        this.cacheMaximumTtlMillis = builder.cacheMaximumTtl.toMillis();
+    }
+
+    public static Builder builder(URI introspectionUri) {
+        return new Builder(introspectionUri);
+    }
+
+    /**
+     * Sets the metrics to record the introspection calls to.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Drops all cached introspection results, e.g. after tokens were revoked.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Duration getCacheMaximumTtl() {
+        return Duration.ofMillis(cacheMaximumTtlMillis);
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    @Override
+    public VerifiedClaims process(String token) throws ViravaAuthenticationException {
+        var tokenDigest = TokenDigest.of(token);
+        var claims = cache.get(tokenDigest);
+        if (claims != null) {
+            return claims;
+        }
+        var started = new CompletableFuture<VerifiedClaims>();
+        var inFlight = introspections.putIfAbsent(tokenDigest, started);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            claims = cache.get(tokenDigest);
+            if (claims == null) {
+                claims = introspect(token);
+                cache.put(tokenDigest, claims, cacheExpiry(claims.expiresAt()));
+            }
+            started.complete(claims);
+            return claims;
+        } catch (RuntimeException ex) {
+            started.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            introspections.remove(tokenDigest, started);
+        }
+    }
+
+    private VerifiedClaims introspect(String token) {
+        try {
+            if (!introspectionPermits.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw unavailable("Too many outstanding token introspections", null);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw unavailable("Interrupted while waiting to introspect the token", ex);
+        }
+        var start = metrics == null ? 0L : System.nanoTime();
+        var successful = false;
+        try {
+            var response = httpClient.send(newRequest(token), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw unavailable(String.format("Token introspection failed with status [%d]", response.statusCode()), null);
+            }
+            Map<String, Object> claims = objectMapper.readValue(response.body(), new TypeReference<>() {
+            });
+            successful = true;
+            return toVerifiedClaims(claims);
+        } catch (IOException ex) {
+            throw unavailable("Token introspection failed", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw unavailable("Interrupted while introspecting the token", ex);
+        } finally {
+            introspectionPermits.release();
+            if (metrics != null) {
+                metrics.recordIntrospection(System.nanoTime() - start, successful);
+            }
+        }
+    }
+
+    private HttpRequest newRequest(String token) {
+        var request = HttpRequest.newBuilder(introspectionUri)
+                .timeout(timeout)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("token=" + encode(token) + "&token_type_hint=access_token"));
+        if (authorizationHeader != null) {
+            request.header("Authorization", authorizationHeader);
+        }
+        return request.build();
+    }
+
+    private static VerifiedClaims toVerifiedClaims(Map<String, Object> claims) {
+        if (claims == null || !Boolean.TRUE.equals(claims.get(ACTIVE_CLAIM))) {
+            throw inactive();
+        }
+        Instant expiresAt = null;
+        if (claims.get(EXPIRES_AT_CLAIM) instanceof Number exp) {
+            expiresAt = Instant.ofEpochSecond(exp.longValue());
+            if (!expiresAt.isAfter(Instant.now())) {
+                throw inactive();
+            }
+        }
+        return new VerifiedClaims(claims, expiresAt);
+    }
+
+    private long cacheExpiry(Instant expiresAt) {
+        var maximumExpiry = System.currentTimeMillis() + cacheMaximumTtlMillis;
+        return expiresAt == null ? maximumExpiry : Math.min(expiresAt.toEpochMilli(), maximumExpiry);
+    }
+
+    private static VerifiedClaims await(CompletableFuture<VerifiedClaims> introspection) {
+        try {
+            return introspection.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw ex;
+        }
+    }
+
+    private static ViravaAuthenticationException inactive() {
+        return new ViravaAuthenticationException(TOKEN_NOT_ACTIVE,
+                new TokenIntrospectionException(TOKEN_NOT_ACTIVE, true, null));
+    }
+
+    private static ViravaAuthenticationException unavailable(String message, Throwable cause) {
+        return new ViravaAuthenticationException(message, new TokenIntrospectionException(message, false, cause));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void requirePositive(Duration duration, String message) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    public static class Builder {
+
+        private final URI introspectionUri;
+
+        private String clientId;
+
+        private String clientSecret;
+
+        private HttpClient httpClient;
+
+        private ObjectMapper objectMapper;
+
+        private Duration timeout = DEFAULT_TIMEOUT;
+
+        private int maximumConcurrentIntrospections = DEFAULT_MAXIMUM_CONCURRENT_INTROSPECTIONS;
+
+        private int cacheMaximumSize = DEFAULT_CACHE_MAXIMUM_SIZE;
+
+        private Duration cacheMaximumTtl = DEFAULT_CACHE_MAXIMUM_TTL;
+
+        private Builder(URI introspectionUri) {
+            this.introspectionUri = Objects.requireNonNull(introspectionUri, "Introspection URI cannot be null");
+        }
+
+        /**
+         * Authenticates the introspection calls with HTTP Basic authentication.
+         */
+        public Builder withClientCredentials(String clientId, String clientSecret) {
+            this.clientId = Objects.requireNonNull(clientId, "Client id cannot be null");
+            this.clientSecret = Objects.requireNonNull(clientSecret, "Client secret cannot be null");
+            return this;
+        }
+
+        public Builder withHttpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public Builder withObjectMapper(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            return this;
+        }
+
+        public Builder withTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder withMaximumConcurrentIntrospections(int maximumConcurrentIntrospections) {
+            this.maximumConcurrentIntrospections = maximumConcurrentIntrospections;
+            return this;
+        }
+
+        public Builder withCacheMaximumSize(int cacheMaximumSize) {
+            this.cacheMaximumSize = cacheMaximumSize;
+            return this;
+        }
+
+        public Builder withCacheMaximumTtl(Duration cacheMaximumTtl) {
+            this.cacheMaximumTtl = cacheMaximumTtl;
+            return this;
+        }
+
+        public IntrospectionTokenAuthenticator build() {
+            return new IntrospectionTokenAuthenticator(this);
+        }
+    }
+}
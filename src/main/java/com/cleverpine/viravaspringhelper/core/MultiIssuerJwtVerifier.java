@@ -0,0 +1,87 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.auth0.jwt.RegisteredClaims;
+import com.auth0.jwt.exceptions.IncorrectClaimException;
+import com.auth0.jwt.exceptions.MissingClaimException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Verifies tokens of several issuers. Each issuer has its own {@link ViravaJwtVerifier}, with its own JWK set or
+ * HMAC secrets, and its own cached key verifiers.
+ * <p>
+ * A token is routed to its issuer's verifier with a single lookup by the unverified {@code iss} claim, and the key
+ * is then picked by the {@code kid} header. A token is therefore verified at most once, and tokens of unknown
+ * issuers are rejected without any signature check.
+ * </p>
+ */
+public class MultiIssuerJwtVerifier implements TokenAuthenticator<DecodedJWT> {
+
+    private static final String ISSUER_NOT_ACCEPTED = "The Claim 'iss' value doesn't match the required issuer.";
+
+    private final Map<String, ViravaJwtVerifier> verifiersByIssuer;
+
+    /**
+     * @param issuerConfigs one config per issuer, each with its issuer and either a JWK set URL or HMAC secrets
+     */
+    public MultiIssuerJwtVerifier(Collection<AuthTokenConfig> issuerConfigs) {
+        if (issuerConfigs == null || issuerConfigs.isEmpty()) {
+            throw new IllegalArgumentException("At least one issuer config is required");
+        }
+        var verifiers = new HashMap<String, ViravaJwtVerifier>();
+        for (AuthTokenConfig issuerConfig : issuerConfigs) {
+            var issuer = issuerConfig.getIssuer();
+            if (Objects.isNull(issuer)) {
+                throw new IllegalArgumentException("Each issuer config must define its issuer");
+            }
+            if (verifiers.putIfAbsent(issuer, new ViravaJwtVerifier(issuerConfig)) != null) {
+                throw new IllegalArgumentException(String.format("Duplicate issuer [%s]", issuer));
+            }
+        }
+        this.verifiersByIssuer = Map.copyOf(verifiers);
+    }
+
+    /**
+     * Sets the metrics to record the JWK fetches of all issuers to.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        verifiersByIssuer.values().forEach(verifier -> verifier.setMetrics(metrics));
+    }
+
+    /**
+     * Drops the cached key verifiers of all issuers. See {@link ViravaJwtVerifier#invalidateKeyVerifiers()}.
+     */
+    public void invalidateKeyVerifiers() {
+        verifiersByIssuer.values().forEach(ViravaJwtVerifier::invalidateKeyVerifiers);
+    }
+
+    @Override
+    public DecodedJWT process(String token) throws ViravaAuthenticationException {
+        var jwt = ViravaJwtVerifier.decodeUnverified(token);
+        var verifier = getVerifier(jwt);
+        return verifier.verify(verifier.precheck(jwt));
+    }
+
+    private ViravaJwtVerifier getVerifier(DecodedJWT jwt) throws ViravaAuthenticationException {
+        var issuerClaim = jwt.getClaim(RegisteredClaims.ISSUER);
+        if (issuerClaim.isMissing()) {
+            var exception = new MissingClaimException(RegisteredClaims.ISSUER);
+            throw new ViravaAuthenticationException(exception.getMessage(), exception);
+        }
+        var issuer = issuerClaim.asString();
+        var verifier = issuer == null ? null : verifiersByIssuer.get(issuer);
+        if (verifier == null) {
+            var exception = new IncorrectClaimException(ISSUER_NOT_ACCEPTED, RegisteredClaims.ISSUER, issuerClaim);
+            throw new ViravaAuthenticationException(exception.getMessage(), exception);
+        }
+        return verifier;
+    }
+}
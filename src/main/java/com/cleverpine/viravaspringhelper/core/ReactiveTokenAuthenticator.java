@@ -0,0 +1,16 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveTokenAuthenticator<T> {
+
+    /**
+     * Authenticates the access token without blocking the calling thread.
+     * It can decode, verify or check the token based on the provided implementation.
+     * @param token the token to be authenticated or verified
+     * @return the authenticated token, or an error signal with a {@link ViravaAuthenticationException}
+     * if there is a problem with the token authentication
+     */
+    Mono<T> process(String token);
+}
@@ -0,0 +1,48 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking counterpart of {@link ViravaJwtVerifier}.
+ * <p>
+ * Tokens whose key is already known (any HMAC token, or an RSA token whose key id has been seen before) are verified
+ * on the subscribing thread, since that is pure CPU work. Only a token that needs its key fetched from the JWK set
+ * is verified on the given scheduler, {@link Schedulers#boundedElastic()} by default, so event loop threads never
+ * wait on the JWK set endpoint.
+ * </p>
+ */
+public class ReactiveViravaJwtVerifier implements ReactiveTokenAuthenticator<DecodedJWT> {
+
+    private final ViravaJwtVerifier jwtVerifier;
+    private final Scheduler jwkFetchScheduler;
+
+    public ReactiveViravaJwtVerifier(AuthTokenConfig authTokenConfig) {
+        this(new ViravaJwtVerifier(authTokenConfig));
+    }
+
+    public ReactiveViravaJwtVerifier(ViravaJwtVerifier jwtVerifier) {
+        this(jwtVerifier, Schedulers.boundedElastic());
+    }
+
+    public ReactiveViravaJwtVerifier(ViravaJwtVerifier jwtVerifier, Scheduler jwkFetchScheduler) {
+        this.jwtVerifier = jwtVerifier;
+        this.jwkFetchScheduler = jwkFetchScheduler;
+    }
+
+    @Override
+    public Mono<DecodedJWT> process(String token) {
+        return Mono.fromCallable(() -> jwtVerifier.decode(token))
+                .flatMap(this::verify);
+    }
+
+    private Mono<DecodedJWT> verify(DecodedJWT jwt) {
+        var verification = Mono.fromCallable(() -> jwtVerifier.verify(jwt));
+        return jwtVerifier.hasVerifierFor(jwt) ?
+                verification :
+                verification.subscribeOn(jwkFetchScheduler);
+    }
+}
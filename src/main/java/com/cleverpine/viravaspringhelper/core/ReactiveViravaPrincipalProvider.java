@@ -0,0 +1,41 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link ViravaPrincipalProvider}, reading the authentication from the
+ * {@link ReactiveSecurityContextHolder} populated by {@code ViravaWebFilter}.
+ */
+public abstract class ReactiveViravaPrincipalProvider<CPI extends CustomPrincipalInfo> {
+
+    private final Class<CPI> cpiClass;
+
+    protected ReactiveViravaPrincipalProvider(Class<CPI> cpiClass) {
+        this.cpiClass = cpiClass;
+    }
+
+    public abstract Mono<CPI> provideCustomPrincipalInfo(String username);
+
+    public final Mono<ViravaAuthenticationToken> getAuthentication() {
+        return ReactiveSecurityContextHolder.getContext()
+                .mapNotNull(SecurityContext::getAuthentication)
+                .filter(ViravaAuthenticationToken.class::isInstance)
+                .cast(ViravaAuthenticationToken.class);
+    }
+
+    public final Mono<CPI> getCustomPrincipalInfo() {
+        return getAuthentication()
+                .mapNotNull(ViravaAuthenticationToken::getPrincipal)
+                .filter(principal -> principal.getUsername() != null && !principal.getUsername().isEmpty())
+                .flatMap(principal -> {
+                    CPI customInfo = principal.getCustomPrincipalInfo(cpiClass);
+                    if (customInfo != null) {
+                        return Mono.just(customInfo);
+                    }
+                    return provideCustomPrincipalInfo(principal.getUsername())
+                            .doOnNext(principal::setCustomPrincipalInfo);
+                });
+    }
+}
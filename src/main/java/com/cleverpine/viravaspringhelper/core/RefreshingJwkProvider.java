@@ -0,0 +1,327 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.JwkProvider;
+import com.auth0.jwk.NetworkException;
+import com.auth0.jwk.RateLimitReachedException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwk.UrlJwkProvider;
+import com.cleverpine.viravaspringhelper.cache.BoundedExpiringCache;
+
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link JwkProvider} keeping the whole JWK set in memory and refreshing it in the background.
+ * <ul>
+ *     <li>Once a set is loaded, key lookups never wait on the network. When the set reaches 80% of its TTL, a refresh
+ *     starts in the background and the current keys keep being served while it runs, and also if it fails.</li>
+ *     <li>A key id missing from the set triggers a refresh the caller waits for, since the identity provider may have
+ *     just rotated its keys. Callers join a fetch already in flight. Otherwise each key id starts such a refresh at
+ *     most once per {@code unknownKeyIdRefreshInterval}, and all key ids together at most once per second, so a
+ *     bogus key id cannot hold back a rotated one; when limited, unknown key ids are rejected straight away with a
+ *     {@link RateLimitReachedException}, since the key may still show up in the next refresh.</li>
+ *     <li>After {@code circuitBreakerFailureThreshold} consecutive failed fetches, fetching is suspended for
+ *     {@code circuitBreakerOpenDuration} and callers needing a fetch fail fast with a {@link NetworkException}.</li>
+ * </ul>
+ */
+public class RefreshingJwkProvider implements JwkProvider {
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+
+    public static final Duration DEFAULT_UNKNOWN_KEY_ID_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 3;
+
+    public static final Duration DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private static final int READ_TIMEOUT_MILLIS = 5_000;
+
+    private static final int REFRESH_AHEAD_PERCENT = 80;
+
+    private static final long MINIMUM_UNKNOWN_KEY_ID_REFRESH_SPACING_MILLIS = 1_000;
+
+    private static final int MAXIMUM_TRACKED_UNKNOWN_KEY_IDS = 1_024;
+
+    private final UrlJwkProvider jwkSetSource;
+    private final long refreshAheadMillis;
+    private final long unknownKeyIdRefreshIntervalMillis;
+    private final long unknownKeyIdRefreshSpacingMillis;
+    private final int circuitBreakerFailureThreshold;
+    private final long circuitBreakerOpenMillis;
+    private final Executor refreshExecutor;
+    private final List<Runnable> rotationListeners = new CopyOnWriteArrayList<>();
+    private final AtomicReference<CompletableFuture<KeySet>> refresh = new AtomicReference<>();
+    private final AtomicLong lastUnknownKeyIdRefreshMillis = new AtomicLong();
+    private final BoundedExpiringCache<String, Long> unknownKeyIdRefreshAllowedAtMillis =
+            new BoundedExpiringCache<>(MAXIMUM_TRACKED_UNKNOWN_KEY_IDS);
+    private volatile KeySet keySet;
+    private volatile int consecutiveFailures;
+    private volatile long circuitOpenUntilMillis;
+
+    private RefreshingJwkProvider(Builder builder) {
+        requirePositive(builder.ttl, "JWK set TTL must be positive");
+        requirePositive(builder.unknownKeyIdRefreshInterval, "Unknown key id refresh interval must be positive");
+        requirePositive(builder.circuitBreakerOpenDuration, "Circuit breaker open duration must be positive");
+        if (builder.circuitBreakerFailureThreshold <= 0) {
+            throw new IllegalArgumentException("Circuit breaker failure threshold must be positive");
+        }
+        this.jwkSetSource = new UrlJwkProvider(builder.jwkSetUrl, CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS);
+        this.refreshAheadMillis = builder.ttl.toMillis() * REFRESH_AHEAD_PERCENT / 100;
+        this.unknownKeyIdRefreshIntervalMillis = builder.unknownKeyIdRefreshInterval.toMillis();
+        this.unknownKeyIdRefreshSpacingMillis = Math.min(unknownKeyIdRefreshIntervalMillis,
+                MINIMUM_UNKNOWN_KEY_ID_REFRESH_SPACING_MILLIS);
+        this.circuitBreakerFailureThreshold = builder.circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenMillis = builder.circuitBreakerOpenDuration.toMillis();
+        this.refreshExecutor = builder.refreshExecutor == null ? newRefreshExecutor() : builder.refreshExecutor;
+    }
+
+    public static Builder builder(URL jwkSetUrl) {
+        return new Builder(jwkSetUrl);
+    }
+
+    /**
+     * Registers a listener called after a refresh changed the keys of the set.
+     *
+     * @param rotationListener the listener
+     */
+    public void addRotationListener(Runnable rotationListener) {
+        rotationListeners.add(rotationListener);
+    }
+
+    @Override
+    public Jwk get(String keyId) throws JwkException {
+        var current = keySet;
+        if (current == null) {
+            current = awaitRefresh();
+        } else if (System.currentTimeMillis() >= current.refreshAtMillis()) {
+            refreshInBackground();
+        }
+        var jwk = current.get(keyId);
+        if (jwk != null) {
+            return jwk;
+        }
+        if (refresh.get() == null) {
+            var refreshAvailableInMillis = tryStartUnknownKeyIdRefresh(keyId);
+            if (refreshAvailableInMillis > 0 && refresh.get() == null) {
+                throw new RateLimitReachedException(refreshAvailableInMillis);
+            }
+        }
+        jwk = awaitRefresh().get(keyId);
+        if (jwk == null) {
+            throw new SigningKeyNotFoundException(String.format("No key found in the JWK set for kid [%s]", keyId), null);
+        }
+        return jwk;
+    }
+
+    /**
+     * @return {@code 0} if the caller may refresh, otherwise the milliseconds until a refresh is allowed again
+     */
+    private long tryStartUnknownKeyIdRefresh(String keyId) {
+        var now = System.currentTimeMillis();
+        var trackedKeyId = Objects.toString(keyId, "");
+        var allowedAt = unknownKeyIdRefreshAllowedAtMillis.get(trackedKeyId);
+        if (allowedAt != null && allowedAt > now) {
+            return allowedAt - now;
+        }
+        var last = lastUnknownKeyIdRefreshMillis.get();
+        var availableIn = last + unknownKeyIdRefreshSpacingMillis - now;
+        if (availableIn > 0) {
+            return availableIn;
+        }
+        if (!lastUnknownKeyIdRefreshMillis.compareAndSet(last, now)) {
+            return unknownKeyIdRefreshSpacingMillis;
+        }
+        var nextAllowedAt = now + unknownKeyIdRefreshIntervalMillis;
+        unknownKeyIdRefreshAllowedAtMillis.put(trackedKeyId, nextAllowedAt, nextAllowedAt);
+        return 0;
+    }
+
+    private void refreshInBackground() {
+        if (System.currentTimeMillis() < circuitOpenUntilMillis) {
+            return;
+        }
+        startRefresh(true);
+    }
+
+    private KeySet awaitRefresh() throws JwkException {
+        try {
+            return startRefresh(false).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof JwkException jwkException) {
+                throw jwkException;
+            }
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the refresh in progress, or starts one. A synchronous refresh runs on the calling thread.
+     */
+    private CompletableFuture<KeySet> startRefresh(boolean async) {
+        while (true) {
+            var inFlight = refresh.get();
+            if (inFlight != null) {
+                return inFlight;
+            }
+            var started = new CompletableFuture<KeySet>();
+            if (!refresh.compareAndSet(null, started)) {
+                continue;
+            }
+            Runnable fetch = () -> {
+                try {
+                    started.complete(fetchKeySet());
+                } catch (Throwable ex) {
+                    started.completeExceptionally(ex);
+                } finally {
+                    refresh.compareAndSet(started, null);
+                }
+            };
+            if (!async) {
+                fetch.run();
+                return started;
+            }
+            try {
+                refreshExecutor.execute(fetch);
+            } catch (RejectedExecutionException ex) {
+                started.completeExceptionally(ex);
+                refresh.compareAndSet(started, null);
+            }
+            return started;
+        }
+    }
+
+    private KeySet fetchKeySet() throws JwkException {
+        var now = System.currentTimeMillis();
+        if (now < circuitOpenUntilMillis) {
+            throw new NetworkException("JWK set fetching is suspended after repeated failures", null);
+        }
+        List<Jwk> jwks;
+        try {
+            jwks = jwkSetSource.getAll();
+        } catch (JwkException | RuntimeException ex) {
+            var failures = consecutiveFailures + 1;
+            consecutiveFailures = failures;
+            if (failures >= circuitBreakerFailureThreshold) {
+                circuitOpenUntilMillis = System.currentTimeMillis() + circuitBreakerOpenMillis;
+            }
+            throw ex;
+        }
+        consecutiveFailures = 0;
+        var fetched = new KeySet(List.copyOf(jwks), now + refreshAheadMillis);
+        var previous = keySet;
+        keySet = fetched;
+        if (previous != null && !previous.hasSameKeys(fetched)) {
+            rotationListeners.forEach(Runnable::run);
+        }
+        return fetched;
+    }
+
+    private static Executor newRefreshExecutor() {
+        var executor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "virava-jwk-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void requirePositive(Duration duration, String message) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private record KeySet(List<Jwk> keys, long refreshAtMillis) {
+
+        Jwk get(String keyId) {
+            if (keyId == null && keys.size() == 1) {
+                return keys.get(0);
+            }
+            for (Jwk jwk : keys) {
+                if (Objects.equals(keyId, jwk.getId())) {
+                    return jwk;
+                }
+            }
+            return null;
+        }
+
+        boolean hasSameKeys(KeySet other) {
+            if (keys.size() != other.keys.size()) {
+                return false;
+            }
+            for (Jwk jwk : keys) {
+                var otherJwk = other.get(jwk.getId());
+                if (otherJwk == null
+                        || !Objects.equals(jwk.getAdditionalAttributes(), otherJwk.getAdditionalAttributes())
+                        || !Objects.equals(jwk.getCertificateChain(), otherJwk.getCertificateChain())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public static class Builder {
+
+        private final URL jwkSetUrl;
+
+        private Duration ttl = DEFAULT_TTL;
+
+        private Duration unknownKeyIdRefreshInterval = DEFAULT_UNKNOWN_KEY_ID_REFRESH_INTERVAL;
+
+        private int circuitBreakerFailureThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+
+        private Duration circuitBreakerOpenDuration = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+
+        private Executor refreshExecutor;
+
+        private Builder(URL jwkSetUrl) {
+            this.jwkSetUrl = Objects.requireNonNull(jwkSetUrl, "JWK set URL cannot be null");
+        }
+
+        public Builder withTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder withUnknownKeyIdRefreshInterval(Duration unknownKeyIdRefreshInterval) {
+            this.unknownKeyIdRefreshInterval = unknownKeyIdRefreshInterval;
+            return this;
+        }
+
+        public Builder withCircuitBreaker(int failureThreshold, Duration openDuration) {
+            this.circuitBreakerFailureThreshold = failureThreshold;
+            this.circuitBreakerOpenDuration = openDuration;
+            return this;
+        }
+
+        public Builder withRefreshExecutor(Executor refreshExecutor) {
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        public RefreshingJwkProvider build() {
+            return new RefreshingJwkProvider(this);
+        }
+    }
+}
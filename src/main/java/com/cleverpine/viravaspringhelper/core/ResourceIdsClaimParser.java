@@ -0,0 +1,95 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.cache.BoundedExpiringCache;
+import com.cleverpine.viravaspringhelper.dto.ResourceIdsAccess;
+
+import java.util.Arrays;
+
+/**
+ * Parses {@code IDS_<RESOURCE>} claims of the form {@code "1, 2, 3"} or {@code "ALL"}.
+ * <p>
+ * The claim is parsed in a single pass without regular expressions or boxing. Parsed results of short claims are
+ * cached for a few minutes by resource and claim value, since the same users present the same claims on every
+ * request. Longer claims are parsed every time, so the cache stays small however many ids a user carries.
+ * </p>
+ */
+final class ResourceIdsClaimParser {
+
+    private static final String ACCESS_ALL_RESOURCE_IDS = "ALL";
+
+    private static final int PARSED_CLAIMS_CACHE_SIZE = 4096;
+
+    private static final int MAXIMUM_CACHED_CLAIM_LENGTH = 1024;
+
+    private static final long PARSED_CLAIMS_TTL_MILLIS = 10 * 60 * 1000L;
+
+    private static final BoundedExpiringCache<ParsedClaimKey, ResourceIdsAccess> parsedClaims =
+            new BoundedExpiringCache<>(PARSED_CLAIMS_CACHE_SIZE);
+
+    private ResourceIdsClaimParser() {
+    }
+
+    static ResourceIdsAccess parse(BaseResource resource, String idsListString) {
+        if (idsListString.length() > MAXIMUM_CACHED_CLAIM_LENGTH) {
+            return parseAccess(resource, idsListString);
+        }
+        var key = new ParsedClaimKey(resource, idsListString);
+        var resourceIdsAccess = parsedClaims.get(key);
+        if (resourceIdsAccess == null) {
+            resourceIdsAccess = parseAccess(resource, idsListString);
+            parsedClaims.put(key, resourceIdsAccess, System.currentTimeMillis() + PARSED_CLAIMS_TTL_MILLIS);
+        }
+        return resourceIdsAccess;
+    }
+
+    private static ResourceIdsAccess parseAccess(BaseResource resource, String idsListString) {
+        var canAccessAll = idsListString.contains(ACCESS_ALL_RESOURCE_IDS);
+        return new ResourceIdsAccess(resource, canAccessAll ? new long[0] : parseIds(idsListString), canAccessAll);
+    }
+
+    /**
+     * Parses the ids separated by {@code ", "}. Elements which are not whole numbers that fit in a long are skipped.
+     */
+    static long[] parseIds(String idsListString) {
+        var ids = new long[Math.max(1, idsListString.length() / 4)];
+        var count = 0;
+        var length = idsListString.length();
+        var start = 0;
+        while (start <= length) {
+            var end = idsListString.indexOf(", ", start);
+            if (end < 0) {
+                end = length;
+            }
+            if (isWholeNumber(idsListString, start, end)) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = Long.parseLong(idsListString, start, end, 10);
+            }
+            start = end + 2;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static boolean isWholeNumber(String value, int start, int end) {
+        var digitsStart = start < end && value.charAt(start) == '-' ? start + 1 : start;
+        var digits = end - digitsStart;
+        if (digits <= 0 || digits > 19) {
+            return false;
+        }
+        for (int i = digitsStart; i < end; i++) {
+            var c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (digits < 19) {
+            return true;
+        }
+        var limit = value.charAt(start) == '-' ? "9223372036854775808" : "9223372036854775807";
+        return value.substring(digitsStart, end).compareTo(limit) <= 0;
+    }
+
+    private record ParsedClaimKey(BaseResource resource, String idsListString) {
+    }
+}
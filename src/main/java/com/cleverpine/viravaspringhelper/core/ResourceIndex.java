@@ -0,0 +1,83 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each resource a dense index, so per-resource data can be kept in plain arrays.
+ * <p>
+ * The {@link ViravaAuthority} of every resource and scope type is created once here and shared by all the
+ * permissions built on this index.
+ * </p>
+ */
+public final class ResourceIndex {
+
+    private final List<BaseResource> resources;
+
+    private final Map<BaseResource, Integer> indexByResource;
+
+    private static final ScopeType[] SCOPE_TYPES = ScopeType.values();
+
+    private final String[] idsClaimNames;
+
+    private final ViravaAuthority[] authorities;
+
+    private ResourceIndex(List<BaseResource> resources) {
+        this.resources = resources;
+        this.idsClaimNames = resources.stream().map(BaseResource::getIdsParameterName).toArray(String[]::new);
+        this.authorities = new ViravaAuthority[resources.size() * SCOPE_TYPES.length];
+        for (int i = 0; i < resources.size(); i++) {
+            for (ScopeType scopeType : SCOPE_TYPES) {
+                authorities[i * SCOPE_TYPES.length + scopeType.ordinal()] = new ViravaAuthority(resources.get(i), scopeType);
+            }
+        }
+        var indexMap = new HashMap<BaseResource, Integer>();
+        for (int i = 0; i < resources.size(); i++) {
+            indexMap.putIfAbsent(resources.get(i), i);
+        }
+        this.indexByResource = Map.copyOf(indexMap);
+    }
+
+    public static ResourceIndex of(Collection<? extends BaseResource> resources) {
+        return new ResourceIndex(resources.stream().distinct().map(BaseResource.class::cast).toList());
+    }
+
+    /**
+     * @param resource the resource to look up
+     * @return the index of the resource, or -1 if it is not part of this index
+     */
+    public int indexOf(BaseResource resource) {
+        var index = indexByResource.get(resource);
+        return index == null ? -1 : index;
+    }
+
+    public BaseResource get(int index) {
+        return resources.get(index);
+    }
+
+    /**
+     * @return the name of the claim listing the accessible ids of the resource at the index
+     */
+    public String getIdsClaimName(int index) {
+        return idsClaimNames[index];
+    }
+
+    /**
+     * @return the shared authority for the scope type of the resource at the index
+     */
+    public ViravaAuthority getAuthority(int index, ScopeType scopeType) {
+        return authorities[index * SCOPE_TYPES.length + scopeType.ordinal()];
+    }
+
+    public List<BaseResource> getResources() {
+        return resources;
+    }
+
+    public int size() {
+        return resources.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.dto.Permission;
+import com.cleverpine.viravaspringhelper.dto.PermissionInitializer;
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The immutable permissions resolved for a combination of roles. Instances are shared between all principals
+ * having the same effective roles.
+ * <p>
+ * The scope types granted for each resource are kept as a bitmask of {@link ScopeType#mask()} values, indexed by
+ * the resource's position in the {@link ResourceIndex}. The {@link Permission} and {@link ViravaAuthority} views
+ * are derived from the masks on first access.
+ * </p>
+ */
+public final class RolePermissions {
+
+    private static final RolePermissions EMPTY = new RolePermissions(ResourceIndex.of(List.of()), new byte[0]);
+
+    private final ResourceIndex resourceIndex;
+
+    private final byte[] scopeMasks;
+
+    private volatile List<Permission> permissionList;
+
+    private volatile List<ViravaAuthority> authorityList;
+
+    private RolePermissions(ResourceIndex resourceIndex, byte[] scopeMasks) {
+        this.resourceIndex = resourceIndex;
+        this.scopeMasks = scopeMasks;
+    }
+
+    public static RolePermissions of(List<Permission> permissionList) {
+        if (permissionList == null || permissionList.isEmpty()) {
+            return EMPTY;
+        }
+        var resourceIndex = ResourceIndex.of(permissionList.stream().map(Permission::getResource).toList());
+        var scopeMasks = new byte[resourceIndex.size()];
+        for (Permission permission : permissionList) {
+            scopeMasks[resourceIndex.indexOf(permission.getResource())] |= (byte) ScopeType.maskOf(permission.getScopeTypes());
+        }
+        return new RolePermissions(resourceIndex, scopeMasks);
+    }
+
+    /**
+     * @param resourceIndex the index the masks are aligned with
+     * @param scopeMasks    the scope mask of each resource in the index
+     * @return the permissions described by the masks
+     */
+    public static RolePermissions of(ResourceIndex resourceIndex, byte[] scopeMasks) {
+        if (scopeMasks.length != resourceIndex.size()) {
+            throw new IllegalArgumentException("Scope masks must have one entry per indexed resource");
+        }
+        return new RolePermissions(resourceIndex, scopeMasks.clone());
+    }
+
+    /**
+     * @param resource the resource to look up
+     * @return the bitmask of the scope types granted for the resource, 0 if none
+     */
+    public int getScopeMask(BaseResource resource) {
+        var index = resourceIndex.indexOf(resource);
+        return index < 0 ? 0 : scopeMasks[index];
+    }
+
+    public boolean hasAnyScope(BaseResource resource, int requiredScopeMask) {
+        return (getScopeMask(resource) & requiredScopeMask) != 0;
+    }
+
+    public ResourceIndex getResourceIndex() {
+        return resourceIndex;
+    }
+
+    public List<Permission> getPermissionList() {
+        var permissions = permissionList;
+        if (permissions == null) {
+            var builtPermissions = new ArrayList<Permission>(scopeMasks.length);
+            for (int i = 0; i < scopeMasks.length; i++) {
+                var initializer = new PermissionInitializer(resourceIndex.get(i));
+                for (ScopeType scopeType : ScopeType.values()) {
+                    if ((scopeMasks[i] & scopeType.mask()) != 0) {
+                        initializer.addScope(scopeType);
+                    }
+                }
+                builtPermissions.add(Permission.of(initializer));
+            }
+            permissions = List.copyOf(builtPermissions);
+            permissionList = permissions;
+        }
+        return permissions;
+    }
+
+    public List<ViravaAuthority> getAuthorityList() {
+        var authorities = authorityList;
+        if (authorities == null) {
+            var builtAuthorities = new ArrayList<ViravaAuthority>();
+            for (int i = 0; i < scopeMasks.length; i++) {
+                for (ScopeType scopeType : ScopeType.values()) {
+                    if ((scopeMasks[i] & scopeType.mask()) != 0) {
+                        builtAuthorities.add(resourceIndex.getAuthority(i, scopeType));
+                    }
+                }
+            }
+            authorities = List.copyOf(builtAuthorities);
+            authorityList = authorities;
+        }
+        return authorities;
+    }
+}
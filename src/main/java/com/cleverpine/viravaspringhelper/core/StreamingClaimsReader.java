@@ -0,0 +1,99 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Reads only the claims Virava needs from a JWT payload, in a single pass with Jackson's streaming parser.
+ * <p>
+ * The result is a sparse claims map containing the username, email, roles and company user paths
+ * configured in {@link AuthTokenConfig}, plus all top level {@code IDS_*} claims. Every other claim is skipped
+ * without being materialized.
+ * </p>
+ */
+public class StreamingClaimsReader {
+
+    private static final String IDS_CLAIM_PREFIX = "IDS_";
+
+    private final ObjectMapper objectMapper;
+
+    private final PathNode rootNode;
+
+    public StreamingClaimsReader(ObjectMapper objectMapper, AuthTokenConfig authTokenConfig) {
+        this.objectMapper = objectMapper;
+        this.rootNode = new PathNode();
+        Stream.of(authTokenConfig.getUsernameClaimPath(),
+                        authTokenConfig.getEmailClaimPath(),
+                        authTokenConfig.getRolesClaimPath(),
+                        authTokenConfig.getIsCompanyUserClaimPath())
+                .filter(Objects::nonNull)
+                .forEach(rootNode::addPath);
+    }
+
+    /**
+     * @param payload the decoded JSON payload of the token
+     * @return the configured claims found in the payload
+     * @throws IOException if the payload is not a valid JSON object
+     */
+    public Map<String, Object> read(byte[] payload) throws IOException {
+        try (var parser = objectMapper.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Token payload is not a JSON object");
+            }
+            return readObject(parser, rootNode, true);
+        }
+    }
+
+    private Map<String, Object> readObject(JsonParser parser, PathNode node, boolean topLevel) throws IOException {
+        var claims = new HashMap<String, Object>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var name = parser.currentName();
+            var token = parser.nextToken();
+            var childNode = node.getChild(name);
+            if ((childNode != null && childNode.isLeaf()) || (topLevel && name.startsWith(IDS_CLAIM_PREFIX))) {
+                claims.put(name, objectMapper.readValue(parser, Object.class));
+            } else if (childNode != null && token == JsonToken.START_OBJECT) {
+                claims.put(name, readObject(parser, childNode, false));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return claims;
+    }
+
+    private static class PathNode {
+
+        private final Map<String, PathNode> children = new HashMap<>();
+
+        private boolean leaf;
+
+        /**
+         * Adds the field segments of the path. Array elements are not streamed individually,
+         * so the field holding the first indexed array is read as a whole.
+         */
+        void addPath(ClaimPath path) {
+            var node = this;
+            for (int i = 0; i < path.getSegmentCount() && path.getFieldName(i) != null; i++) {
+                node = node.children.computeIfAbsent(path.getFieldName(i), s -> new PathNode());
+            }
+            node.leaf = true;
+        }
+
+        PathNode getChild(String name) {
+            return children.get(name);
+        }
+
+        boolean isLeaf() {
+            return leaf;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.cleverpine.viravaspringhelper.core;
+
+/**
+ * The cause of a token rejected by an {@link IntrospectionTokenAuthenticator}: either the authorization server
+ * reported the token as inactive, or it could not be asked.
+ */
+public class TokenIntrospectionException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean inactive;
+
+    public TokenIntrospectionException(String message, boolean inactive, Throwable cause) {
+        super(message, cause);
+        this.inactive = inactive;
+    }
+
+    /**
+     * @return {@code true} if the token is not active, {@code false} if the introspection itself failed
+     */
+    public boolean isInactive() {
+        return inactive;
+    }
+}
@@ -2,38 +2,52 @@ package com.cleverpine.viravaspringhelper.core;
 
 import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
 import com.cleverpine.viravaspringhelper.config.RoleConfig;
-import com.cleverpine.viravaspringhelper.dto.Permission;
 import com.cleverpine.viravaspringhelper.dto.ResourceIdsAccess;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.util.Assert;
 
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class ViravaAuthenticationToken extends AbstractAuthenticationToken {
 
-    private static final String ACCESS_ALL_RESOURCE_IDS = "ALL";
-
-    private static final Pattern numberPattern = Pattern.compile("-?\\d+(\\.\\d+)?");
+    private static final String PAYLOAD_ERASED = "The token payload has been erased after authentication";
 
     private final ViravaUserPrincipal userPrincipal;
 
-    private final Map<String, Object> payloadJsonMap;
+    private volatile Supplier<Map<String, Object>> payloadJsonMapSupplier;
+
+    private volatile Map<String, Object> payloadJsonMap;
 
-    private final String tokenString;
+    private volatile String tokenString;
 
     private final List<String> roles;
 
+    private volatile Collection<GrantedAuthority> authorities;
+
     protected ViravaAuthenticationToken(ViravaUserPrincipal userPrincipal, String tokenString, List<String> roles,
                                         Map<String, Object> payloadJsonMap) {
-        super(userPrincipal == null ? null : userPrincipal.getAuthorityList());
+        super(null);
         this.userPrincipal = userPrincipal;
         this.tokenString = tokenString;
         this.roles = roles;
         this.payloadJsonMap = payloadJsonMap;
+        this.payloadJsonMapSupplier = () -> payloadJsonMap;
+        super.setAuthenticated(true);
+    }
+
+    protected ViravaAuthenticationToken(ViravaUserPrincipal userPrincipal, String tokenString, List<String> roles,
+                                        Supplier<Map<String, Object>> payloadJsonMapSupplier) {
+        super(null);
+        this.userPrincipal = userPrincipal;
+        this.tokenString = tokenString;
+        this.roles = roles;
+        this.payloadJsonMapSupplier = payloadJsonMapSupplier;
         super.setAuthenticated(true);
     }
 
@@ -42,40 +56,111 @@ public class ViravaAuthenticationToken extends AbstractAuthenticationToken {
             RoleConfig<?, ?> roleConfig,
             AuthTokenConfig authTokenConfig,
             String originalToken) {
-        var username = extractStringFromJson(authTokenConfig.getUsernamePath(), payloadJsonMap);
-        var email = extractStringFromJson(authTokenConfig.getEmailPath(), payloadJsonMap);
-        var roles = extractListFromJson(authTokenConfig.getRolesPath(), payloadJsonMap);
-        var isCompanyUser = extractBooleanFromJson(authTokenConfig.getIsCompanyUserPath(), payloadJsonMap);
-        var permissionList = roleConfig.getRolePermissionList(roles);
-        LinkedList<ResourceIdsAccess> resourceIdsAccessList = getResourceIdsAccesses(payloadJsonMap, permissionList);
-        return new ViravaAuthenticationToken(
-                new ViravaUserPrincipal(username, email, permissionList, resourceIdsAccessList, isCompanyUser), originalToken, roles, payloadJsonMap);
-    }
-
-    private static LinkedList<ResourceIdsAccess> getResourceIdsAccesses(Map<String, Object> payloadJsonMap, List<Permission> permissionList) {
-        var resourceIdsAccessList = new LinkedList<ResourceIdsAccess>();
-        if (permissionList != null) {
-            for (Permission permission : permissionList) {
-                var idsListParamString = BaseResource.getIdsParameterName(permission.getResource());
-                if (payloadJsonMap.containsKey(idsListParamString)) {
-                    String idsListString = extractStringFromJson(idsListParamString, payloadJsonMap);
-                    if (idsListString != null) {
-                        var idsList = idsListString.split(", ");
-                        var canAccessAll = idsListString.contains(ACCESS_ALL_RESOURCE_IDS);
-                        List<Long> accessIds = new LinkedList<>();
-                        if (!canAccessAll && idsList != null) {
-                            for (String idString : idsList) {
-                                if (numberPattern.matcher(idString).matches()) {
-                                    accessIds.add(Long.valueOf(idString));
-                                }
-                            }
-                        }
-                        resourceIdsAccessList.add(new ResourceIdsAccess(permission.getResource(), accessIds, canAccessAll));
-                    }
+        return ofAuthorized(payloadJsonMap, () -> payloadJsonMap, roleConfig, authTokenConfig, originalToken);
+    }
+
+    /**
+     * Creates an authenticated token from the claims Virava needs, deferring the full payload to first use.
+     *
+     * @param claimsMap              the claims containing at least the paths configured in {@link AuthTokenConfig}
+     *                               and the {@code IDS_*} claims
+     * @param payloadJsonMapSupplier supplies the full payload when {@link #getJsonAttr(String)} or
+     *                               {@link #getJsonListAttr(String)} are called for the first time
+     * @param roleConfig             the role configuration
+     * @param authTokenConfig        the token configuration
+     * @param originalToken          the raw token
+     * @return the authenticated token
+     */
+    public static ViravaAuthenticationToken ofAuthorized(
+            Map<String, Object> claimsMap,
+            Supplier<Map<String, Object>> payloadJsonMapSupplier,
+            RoleConfig<?, ?> roleConfig,
+            AuthTokenConfig authTokenConfig,
+            String originalToken) {
+        return ofAuthorized(claimsMap, payloadJsonMapSupplier, roleConfig, authTokenConfig, originalToken, null);
+    }
+
+    /**
+     * Same as {@link #ofAuthorized(Map, Supplier, RoleConfig, AuthTokenConfig, String)}, recording the
+     * {@link ViravaMetrics.FilterPhase#ROLE_RESOLUTION role resolution} and
+     * {@link ViravaMetrics.FilterPhase#PRINCIPAL_CONSTRUCTION principal construction} phases.
+     *
+     * @param metrics the metrics to record to, or {@code null}
+     */
+    public static ViravaAuthenticationToken ofAuthorized(
+            Map<String, Object> claimsMap,
+            Supplier<Map<String, Object>> payloadJsonMapSupplier,
+            RoleConfig<?, ?> roleConfig,
+            AuthTokenConfig authTokenConfig,
+            String originalToken,
+            ViravaMetrics metrics) {
+        var roleResolutionStart = metrics == null ? 0L : System.nanoTime();
+        var roles = extractListFromJson(authTokenConfig.getRolesClaimPath(), claimsMap);
+        var rolePermissions = roles == null ? RolePermissions.of(null) : roleConfig.getRolePermissions(roles);
+        var principalConstructionStart = metrics == null ? 0L : System.nanoTime();
+        var username = extractStringFromJson(authTokenConfig.getUsernameClaimPath(), claimsMap);
+        var email = extractStringFromJson(authTokenConfig.getEmailClaimPath(), claimsMap);
+        var isCompanyUser = extractBooleanFromJson(authTokenConfig.getIsCompanyUserClaimPath(), claimsMap);
+        var resourceIdsClaims = getResourceIdsClaims(claimsMap, rolePermissions.getResourceIndex());
+        var userPrincipal = resourceIdsClaims == null ?
+                new ViravaUserPrincipal(username, email, rolePermissions, List.<ResourceIdsAccess>of(), isCompanyUser) :
+                ViravaUserPrincipal.ofResourceIdsClaims(username, email, rolePermissions, resourceIdsClaims, isCompanyUser);
+        var authentication = new ViravaAuthenticationToken(userPrincipal, originalToken, roles, payloadJsonMapSupplier);
+        if (metrics != null) {
+            metrics.recordFilterPhase(ViravaMetrics.FilterPhase.ROLE_RESOLUTION,
+                    principalConstructionStart - roleResolutionStart);
+            metrics.recordFilterPhase(ViravaMetrics.FilterPhase.PRINCIPAL_CONSTRUCTION,
+                    System.nanoTime() - principalConstructionStart);
+        }
+        return authentication;
+    }
+
+    /**
+     * Collects the {@code IDS_*} claims by resource index. They are parsed by the principal when first needed.
+     *
+     * @return the claims, or {@code null} if the token has none for the indexed resources
+     */
+    private static String[] getResourceIdsClaims(Map<String, Object> claimsMap, ResourceIndex resourceIndex) {
+        String[] resourceIdsClaims = null;
+        for (int i = 0; i < resourceIndex.size(); i++) {
+            if (claimsMap.get(resourceIndex.getIdsClaimName(i)) instanceof String idsListString) {
+                if (resourceIdsClaims == null) {
+                    resourceIdsClaims = new String[resourceIndex.size()];
                 }
+                resourceIdsClaims[i] = idsListString;
             }
         }
-        return resourceIdsAccessList;
+        return resourceIdsClaims;
+    }
+
+    /**
+     * Creates a new authenticated token sharing this token's claims, roles and permissions.
+     * Request scoped state, such as the custom principal info and the authentication details, is not copied.
+     *
+     * @return a fresh token that can be placed in a new security context
+     */
+    public ViravaAuthenticationToken copy() {
+        var payload = payloadJsonMap;
+        var copy = new ViravaAuthenticationToken(
+                userPrincipal == null ? null : userPrincipal.copy(), tokenString, roles,
+                payload == null ? payloadJsonMapSupplier : () -> payload);
+        copy.authorities = authorities;
+        return copy;
+    }
+
+    /**
+     * Returns the authorities of the principal's permissions, built on first access.
+     */
+    @Override
+    public Collection<GrantedAuthority> getAuthorities() {
+        var grantedAuthorities = authorities;
+        if (grantedAuthorities == null) {
+            grantedAuthorities = userPrincipal == null ?
+                    List.of() :
+                    Collections.unmodifiableList(userPrincipal.getRolePermissions().getAuthorityList());
+            authorities = grantedAuthorities;
+        }
+        return grantedAuthorities;
     }
 
     @Override
@@ -83,6 +168,19 @@ public class ViravaAuthenticationToken extends AbstractAuthenticationToken {
         return this.tokenString;
     }
 
+    /**
+     * Drops the raw token and the token payload, so that only the extracted claims, roles and permissions are kept
+     * for the rest of the request. Afterwards {@link #getCredentials()} returns {@code null} and
+     * {@link #getJsonAttr(String)} and {@link #getJsonListAttr(String)} throw an {@link IllegalStateException}.
+     */
+    @Override
+    public void eraseCredentials() {
+        super.eraseCredentials();
+        this.tokenString = null;
+        this.payloadJsonMapSupplier = null;
+        this.payloadJsonMap = null;
+    }
+
     @Override
     public ViravaUserPrincipal getPrincipal() {
         return this.userPrincipal;
@@ -98,55 +196,91 @@ public class ViravaAuthenticationToken extends AbstractAuthenticationToken {
         return List.copyOf(roles);
     }
 
+    /**
+     * @param path the dotted claim path, see {@link ClaimPath}
+     * @return the string at the path, or {@code null} if there is none or the path cannot be parsed
+     */
     public String getJsonAttr(String path) {
-        return extractStringFromJson(path, this.payloadJsonMap);
+        return getJsonAttr(compileOrNull(path));
+    }
+
+    public String getJsonAttr(ClaimPath path) {
+        return extractStringFromJson(path, getPayloadJsonMap());
     }
 
+    /**
+     * @param path the dotted claim path, see {@link ClaimPath}
+     * @return the list of strings at the path, or {@code null} if there is none or the path cannot be parsed
+     */
     public List<String> getJsonListAttr(String path) {
-        return extractListFromJson(path, this.payloadJsonMap);
+        return getJsonListAttr(compileOrNull(path));
     }
 
-    private static String extractStringFromJson(String path, Map<String, Object> jsonMap) {
+    public List<String> getJsonListAttr(ClaimPath path) {
+        return extractListFromJson(path, getPayloadJsonMap());
+    }
+
+    private static ClaimPath compileOrNull(String path) {
+        try {
+            return ClaimPath.of(path);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private Map<String, Object> getPayloadJsonMap() {
+        var payload = payloadJsonMap;
+        if (payload == null) {
+            var supplier = payloadJsonMapSupplier;
+            if (supplier == null) {
+                throw new IllegalStateException(PAYLOAD_ERASED);
+            }
+            payload = supplier.get();
+            payloadJsonMap = payload;
+        }
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [" +
+                "Principal=" + getPrincipal() + ", " +
+                "Credentials=[PROTECTED], " +
+                "Authenticated=" + isAuthenticated() + ", " +
+                "Details=" + getDetails() + ", " +
+                "Granted Authorities=" + getAuthorities() + "]";
+    }
+
+    private static String extractStringFromJson(ClaimPath path, Map<String, Object> jsonMap) {
         if (path == null) {
             return null;
         }
-        var pathList = path.split("\\.");
-        var param = readJsonValue(pathList, 0, jsonMap);
+        var param = path.resolve(jsonMap);
         if (param instanceof String) {
             return (String) param;
         }
         return null;
     }
 
-    private static Boolean extractBooleanFromJson(String path, Map<String, Object> jsonMap) {
+    private static Boolean extractBooleanFromJson(ClaimPath path, Map<String, Object> jsonMap) {
         if (path == null) {
             return null;
         }
-        var pathList = path.split("\\.");
-        var param = readJsonValue(pathList, 0, jsonMap);
+        var param = path.resolve(jsonMap);
         if (param instanceof Boolean) {
             return (Boolean) param;
         }
         return null;
     }
 
-    private static List<String> extractListFromJson(String path, Map<String, Object> jsonMap) {
-        var pathList = path.split("\\.");
-        var param = readJsonValue(pathList, 0, jsonMap);
-        if (param instanceof List && ((List<?>) param).get(0) instanceof String) {
+    private static List<String> extractListFromJson(ClaimPath path, Map<String, Object> jsonMap) {
+        if (path == null) {
+            return null;
+        }
+        var param = path.resolve(jsonMap);
+        if (param instanceof List && !((List<?>) param).isEmpty() && ((List<?>) param).get(0) instanceof String) {
             return ((List<?>) param).stream().map(s -> (String) s).collect(Collectors.toList());
         }
         return null;
     }
-
-    private static Object readJsonValue(String[] pathList, int index, Map jsonMap) {
-        var result = jsonMap.get(pathList[index]);
-        if ((index + 1) == pathList.length) {
-            return result;
-        } else if (result instanceof Map) {
-            return readJsonValue(pathList, ++index, (Map) result);
-        } else {
-            return null;
-        }
-    }
 }
@@ -15,4 +15,22 @@ public class ViravaAuthority implements GrantedAuthority {
     public String getAuthority() {
         return authority;
     }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        return other instanceof ViravaAuthority otherAuthority && authority.equals(otherAuthority.authority);
+    }
+
+    @Override
+    public int hashCode() {
+        return authority.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return authority;
+    }
 }
@@ -0,0 +1,66 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * An {@link AuthorizationManager} granting access when the Virava principal has any of the required scopes for
+ * a resource. The requirement is compiled to a scope mask once, and checked against the principal's permission
+ * masks, without matching authority strings.
+ * <pre>{@code
+ *     http.authorizeHttpRequests(requests -> requests
+ *             .requestMatchers(HttpMethod.GET, "/projects/**")
+ *             .access(ViravaAuthorizationManager.hasAnyScope(Resource.PROJECT, ScopeType.READ)));
+ * }</pre>
+ *
+ * @param <T> the type of the secured object, e.g. {@code RequestAuthorizationContext}
+ */
+public final class ViravaAuthorizationManager<T> implements AuthorizationManager<T> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final BaseResource resource;
+
+    private final int requiredScopeMask;
+
+    private ViravaAuthorizationManager(BaseResource resource, int requiredScopeMask) {
+        this.resource = resource;
+        this.requiredScopeMask = requiredScopeMask;
+    }
+
+    /**
+     * @param resource       the resource to secure
+     * @param requiredScopes the scopes of which the user needs at least one
+     * @return a manager granting access to users having any of the scopes for the resource
+     */
+    public static <T> ViravaAuthorizationManager<T> hasAnyScope(BaseResource resource, ScopeType... requiredScopes) {
+        Objects.requireNonNull(resource, "Resource cannot be null");
+        if (requiredScopes == null || requiredScopes.length == 0) {
+            throw new IllegalArgumentException("At least one scope type is required");
+        }
+        return new ViravaAuthorizationManager<>(resource, ScopeType.maskOf(requiredScopes));
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, T object) {
+        if (authentication.get() instanceof ViravaAuthenticationToken token
+                && token.isAuthenticated()
+                && token.getPrincipal() != null
+                && token.getPrincipal().getRolePermissions().hasAnyScope(resource, requiredScopeMask)) {
+            return GRANTED;
+        }
+        return DENIED;
+    }
+
+    @Override
+    public String toString() {
+        return "ViravaAuthorizationManager [resource=" + resource.resource() + ", requiredScopeMask=" + requiredScopeMask + "]";
+    }
+}
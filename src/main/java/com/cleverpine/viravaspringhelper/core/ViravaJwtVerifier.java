@@ -1,68 +1,219 @@
 package com.cleverpine.viravaspringhelper.core;
 
+import com.auth0.jwk.Jwk;
 import com.auth0.jwk.JwkException;
 import com.auth0.jwk.JwkProvider;
-import com.auth0.jwk.JwkProviderBuilder;
+import com.auth0.jwk.SigningKeyNotFoundException;
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.RegisteredClaims;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.AlgorithmMismatchException;
+import com.auth0.jwt.exceptions.IncorrectClaimException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.MissingClaimException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.cleverpine.viravaspringhelper.cache.BoundedExpiringCache;
 import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
 import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
 
 public class ViravaJwtVerifier implements TokenAuthenticator<DecodedJWT> {
 
-    private static final Integer JWK_SETS_CACHE_SIZE = 10;
-    private static final Integer JWK_SET_CACHE_DURATION_HOURS = 24;
     private static final String JWT_VERIFIER_MISSING_REQUIRED_DATA =
             "Cannot initialize a new instance because one of jwk-set-url or secret should be present";
+    private static final String MISSING_KEY_ID = "";
+    private static final String SECRET_ALGORITHM = "HS256";
+    private static final String JWK_SET_ALGORITHM = "RS256";
 
     private final AuthTokenConfig authTokenConfig;
     private final JwkProvider jwkProvider;
+    private final JWTVerifier secretVerifier;
+    private final Map<String, JWTVerifier> secretVerifiersByKeyId;
+    private final String expectedAlgorithm;
+    private final long leewaySeconds;
+    private final BoundedExpiringCache<String, JWTVerifier> keyVerifiers;
+    private ViravaMetrics metrics;
 
     public ViravaJwtVerifier(AuthTokenConfig authTokenConfig) {
         requireOnlyOneVerificationMethod(authTokenConfig);
         this.authTokenConfig = authTokenConfig;
+        leewaySeconds = authTokenConfig.getClockLeeway().toSeconds();
+        keyVerifiers = new BoundedExpiringCache<>(authTokenConfig.getJwkSetCacheSize());
         jwkProvider = initializeJwkProvider(authTokenConfig.getJwkSetUrl());
+        secretVerifier = isJwkSetProviderInitialized() || Objects.isNull(authTokenConfig.getSecret()) ?
+                null :
+                buildVerifier(Algorithm.HMAC256(authTokenConfig.getSecret()));
+        secretVerifiersByKeyId = buildSecretVerifiers(authTokenConfig.getSecretsByKeyId());
+        expectedAlgorithm = isJwkSetProviderInitialized() ? JWK_SET_ALGORITHM : SECRET_ALGORITHM;
+    }
+
+    /**
+     * Sets the metrics to record JWK fetches to. If not set, fetches are not timed.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Drops the verifiers built for the keys of the JWK set, so the next token for each key id fetches its key again.
+     * Call it when the JWK set is known to have rotated.
+     */
+    public void invalidateKeyVerifiers() {
+        keyVerifiers.invalidateAll();
     }
 
     @Override
     public DecodedJWT process(String token) throws ViravaAuthenticationException {
+        return verify(decode(token));
+    }
+
+    /**
+     * Decodes the token and rejects it early if it cannot pass verification anyway, so that expired, not yet valid
+     * or foreign tokens cost neither a key lookup nor a signature check.
+     */
+    DecodedJWT decode(String token) throws ViravaAuthenticationException {
+        return precheck(decodeUnverified(token));
+    }
+
+    static DecodedJWT decodeUnverified(String token) throws ViravaAuthenticationException {
+        try {
+            return JWT.decode(token);
+        } catch (JWTVerificationException exception) {
+            throw new ViravaAuthenticationException(exception.getMessage(), exception);
+        }
+    }
+
+    DecodedJWT precheck(DecodedJWT jwt) throws ViravaAuthenticationException {
+        try {
+            checkWithoutKey(jwt);
+            return jwt;
+        } catch (JWTVerificationException exception) {
+            throw new ViravaAuthenticationException(exception.getMessage(), exception);
+        }
+    }
+
+    DecodedJWT verify(DecodedJWT jwt) throws ViravaAuthenticationException {
         try {
-            return isJwkSetProviderInitialized() ?
-                    verifyTokenAsymmetrically(token) :
-                    verifyTokenSymmetrically(token);
+            var verifier = isJwkSetProviderInitialized() ?
+                    getKeyVerifier(jwt.getKeyId()) :
+                    getSecretVerifier(jwt.getKeyId());
+            return verifier.verify(jwt);
         } catch (JWTVerificationException | JwkException exception) {
             throw new ViravaAuthenticationException(exception.getMessage(), exception);
         }
     }
 
-    private DecodedJWT verifyTokenAsymmetrically(String token) throws JwkException {
-        var jwt = JWT.decode(token);
-        var jwk = jwkProvider.get(jwt.getKeyId());
-        var publicKey = (RSAPublicKey) jwk.getPublicKey();
-        var verificationAlgorithm = Algorithm.RSA256(publicKey, null);
-        return verify(token, verificationAlgorithm);
+    /**
+     * Tells whether {@link #verify(DecodedJWT)} can complete without fetching a key from the JWK set,
+     * i.e. without blocking on network I/O.
+     */
+    boolean hasVerifierFor(DecodedJWT jwt) {
+        if (!isJwkSetProviderInitialized()) {
+            return true;
+        }
+        return keyVerifiers.get(Objects.requireNonNullElse(jwt.getKeyId(), MISSING_KEY_ID)) != null;
     }
 
-    private DecodedJWT verifyTokenSymmetrically(String token) {
-        return verify(token, Algorithm.HMAC256(authTokenConfig.getSecret()));
+    /**
+     * Runs the checks of the full verification that do not need the signing key, in the same order and with the
+     * same exceptions, against the same clock leeway.
+     */
+    private void checkWithoutKey(DecodedJWT jwt) throws JWTVerificationException {
+        if (!expectedAlgorithm.equals(jwt.getAlgorithm())) {
+            throw new AlgorithmMismatchException(
+                    "The provided Algorithm doesn't match the one defined in the JWT's Header.");
+        }
+        var issuer = authTokenConfig.getIssuer();
+        if (Objects.nonNull(issuer)) {
+            var issuerClaim = jwt.getClaim(RegisteredClaims.ISSUER);
+            if (issuerClaim.isMissing()) {
+                throw new MissingClaimException(RegisteredClaims.ISSUER);
+            }
+            if (!issuer.equals(issuerClaim.asString())) {
+                throw new IncorrectClaimException("The Claim 'iss' value doesn't match the required issuer.",
+                        RegisteredClaims.ISSUER, issuerClaim);
+            }
+        }
+        var nowSeconds = System.currentTimeMillis() / 1000;
+        var expiresAt = jwt.getExpiresAtAsInstant();
+        if (expiresAt != null && nowSeconds - leewaySeconds >= expiresAt.getEpochSecond()) {
+            throw new TokenExpiredException(String.format("The Token has expired on %s.", expiresAt), expiresAt);
+        }
+        requireNotBefore(jwt, RegisteredClaims.ISSUED_AT, jwt.getIssuedAtAsInstant(), nowSeconds);
+        requireNotBefore(jwt, RegisteredClaims.NOT_BEFORE, jwt.getNotBeforeAsInstant(), nowSeconds);
+    }
+
+    private void requireNotBefore(DecodedJWT jwt, String claimName, Instant notBefore, long nowSeconds) {
+        if (notBefore != null && nowSeconds + leewaySeconds < notBefore.getEpochSecond()) {
+            throw new IncorrectClaimException(String.format("The Token can't be used before %s.", notBefore),
+                    claimName, jwt.getClaim(claimName));
+        }
+    }
+
+    private JWTVerifier getSecretVerifier(String keyId) throws SigningKeyNotFoundException {
+        var verifier = keyId == null ? null : secretVerifiersByKeyId.get(keyId);
+        if (verifier == null) {
+            verifier = secretVerifier;
+        }
+        if (verifier == null) {
+            throw new SigningKeyNotFoundException(String.format("No secret configured for kid [%s]", keyId), null);
+        }
+        return verifier;
+    }
+
+    private Map<String, JWTVerifier> buildSecretVerifiers(Map<String, String> secretsByKeyId) {
+        var verifiers = new HashMap<String, JWTVerifier>();
+        secretsByKeyId.forEach((keyId, secret) -> verifiers.put(keyId, buildVerifier(Algorithm.HMAC256(secret))));
+        return Map.copyOf(verifiers);
+    }
+
+    private JWTVerifier getKeyVerifier(String keyId) throws JwkException {
+        var registryKey = Objects.requireNonNullElse(keyId, MISSING_KEY_ID);
+        var keyVerifier = keyVerifiers.get(registryKey);
+        if (keyVerifier == null) {
+            var jwk = fetchJwk(keyId);
+            var publicKey = (RSAPublicKey) jwk.getPublicKey();
+            keyVerifier = buildVerifier(Algorithm.RSA256(publicKey, null));
+            keyVerifiers.put(registryKey, keyVerifier,
+                    System.currentTimeMillis() + authTokenConfig.getJwkSetCacheTtl().toMillis());
+        }
+        return keyVerifier;
+    }
+
+    private Jwk fetchJwk(String keyId) throws JwkException {
+        if (metrics == null) {
+            return jwkProvider.get(keyId);
+        }
+        var start = System.nanoTime();
+        var successful = false;
+        try {
+            var jwk = jwkProvider.get(keyId);
+            successful = true;
+            return jwk;
+        } finally {
+            metrics.recordJwkFetch(System.nanoTime() - start, successful);
+        }
     }
 
-    private DecodedJWT verify(String token, Algorithm algorithm) {
-        var jwtVerification = JWT.require(algorithm);
+    private JWTVerifier buildVerifier(Algorithm algorithm) {
+        var jwtVerification = JWT.require(algorithm)
+                .acceptLeeway(leewaySeconds);
         if (Objects.nonNull(authTokenConfig.getIssuer())) {
             jwtVerification.withIssuer(authTokenConfig.getIssuer());
         }
-        var jwtVerifier = jwtVerification
+        return jwtVerification
                 .build();
-        return jwtVerifier.verify(token);
     }
 
     private JwkProvider initializeJwkProvider(String jwkSetUrl) {
@@ -70,9 +221,11 @@ public class ViravaJwtVerifier implements TokenAuthenticator<DecodedJWT> {
             return null;
         }
         try {
-            return new JwkProviderBuilder(new URL(jwkSetUrl))
-                    .cached(JWK_SETS_CACHE_SIZE, JWK_SET_CACHE_DURATION_HOURS, TimeUnit.HOURS)
+            var provider = RefreshingJwkProvider.builder(new URL(jwkSetUrl))
+                    .withTtl(authTokenConfig.getJwkSetCacheTtl())
                     .build();
+            provider.addRotationListener(this::invalidateKeyVerifiers);
+            return provider;
         } catch (MalformedURLException ex) {
             throw new IllegalArgumentException(ex.getMessage(), ex);
         }
@@ -84,11 +237,11 @@ public class ViravaJwtVerifier implements TokenAuthenticator<DecodedJWT> {
 
     private void requireOnlyOneVerificationMethod(AuthTokenConfig authTokenConfig) {
         var jwkSetUrl = authTokenConfig.getJwkSetUrl();
-        var secret = authTokenConfig.getSecret();
-        if (Objects.nonNull(jwkSetUrl) && Objects.nonNull(secret)) {
+        var hasSecret = Objects.nonNull(authTokenConfig.getSecret()) || !authTokenConfig.getSecretsByKeyId().isEmpty();
+        if (Objects.nonNull(jwkSetUrl) && hasSecret) {
             throw new IllegalArgumentException(JWT_VERIFIER_MISSING_REQUIRED_DATA);
         }
-        if (Objects.isNull(jwkSetUrl) && Objects.isNull(secret)) {
+        if (Objects.isNull(jwkSetUrl) && !hasSecret) {
             throw new IllegalArgumentException(JWT_VERIFIER_MISSING_REQUIRED_DATA);
         }
     }
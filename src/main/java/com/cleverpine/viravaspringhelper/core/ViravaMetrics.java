@@ -0,0 +1,135 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import com.auth0.jwk.NetworkException;
+import com.auth0.jwk.RateLimitReachedException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwt.RegisteredClaims;
+import com.auth0.jwt.exceptions.AlgorithmMismatchException;
+import com.auth0.jwt.exceptions.IncorrectClaimException;
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+
+import java.io.IOException;
+
+/**
+ * Receives timings and decisions from the filters, the JWT verifier, the introspection authenticator, the principal
+ * provider, the secured aspect and the role mapping reloader.
+ * <p>
+ * Instrumentation is disabled unless an implementation is set on the component, in which case the component does not
+ * even read the clock. Implementations are called on the request path, so they should only record and return.
+ * </p>
+ */
+public interface ViravaMetrics {
+
+    enum FilterPhase {
+        VERIFY,
+        PARSE,
+        ROLE_RESOLUTION,
+        PRINCIPAL_CONSTRUCTION
+    }
+
+    enum RejectionCause {
+        MALFORMED(true),
+        EXPIRED(true),
+        INVALID_SIGNATURE(true),
+        ALGORITHM_MISMATCH(true),
+        INVALID_CLAIM(true),
+        NOT_YET_VALID(false),
+        UNKNOWN_KEY(true),
+        KEY_UNAVAILABLE(false),
+        INACTIVE(true),
+        INTROSPECTION_UNAVAILABLE(false),
+        OTHER(false);
+
+        private final boolean permanent;
+
+        RejectionCause(boolean permanent) {
+            this.permanent = permanent;
+        }
+
+        /**
+         * Tells whether presenting the same token again would be rejected for the same cause.
+         */
+        public boolean isPermanent() {
+            return permanent;
+        }
+
+        /**
+         * Classifies the failure behind a rejected token.
+         *
+         * @param exception the exception the token was rejected with, or its cause
+         * @return the rejection cause
+         */
+        public static RejectionCause of(Throwable exception) {
+            var cause = exception.getCause() == null ? exception : exception.getCause();
+            if (cause instanceof JWTDecodeException || cause instanceof IOException) {
+                return MALFORMED;
+            }
+            if (cause instanceof TokenExpiredException) {
+                return EXPIRED;
+            }
+            if (cause instanceof SignatureVerificationException) {
+                return INVALID_SIGNATURE;
+            }
+            if (cause instanceof AlgorithmMismatchException) {
+                return ALGORITHM_MISMATCH;
+            }
+            if (cause instanceof IncorrectClaimException incorrectClaimException
+                    && (RegisteredClaims.NOT_BEFORE.equals(incorrectClaimException.getClaimName())
+                    || RegisteredClaims.ISSUED_AT.equals(incorrectClaimException.getClaimName()))) {
+                return NOT_YET_VALID;
+            }
+            if (cause instanceof InvalidClaimException) {
+                return INVALID_CLAIM;
+            }
+            if (cause instanceof NetworkException || cause instanceof RateLimitReachedException) {
+                return KEY_UNAVAILABLE;
+            }
+            if (cause instanceof SigningKeyNotFoundException) {
+                return UNKNOWN_KEY;
+            }
+            if (cause instanceof TokenIntrospectionException introspectionException) {
+                return introspectionException.isInactive() ? INACTIVE : INTROSPECTION_UNAVAILABLE;
+            }
+            return OTHER;
+        }
+    }
+
+    void recordFilterPhase(FilterPhase phase, long durationNanos);
+
+    void recordJwkFetch(long durationNanos, boolean successful);
+
+    /**
+     * Records a call to a token introspection endpoint.
+     *
+     * @param durationNanos the time spent on the call
+     * @param successful    whether the endpoint answered, whether or not the token was active
+     */
+    void recordIntrospection(long durationNanos, boolean successful);
+
+    void recordCustomPrincipalInfoLoad(long durationNanos);
+
+    void recordAuthorization(long durationNanos, boolean granted);
+
+    void countRejection(RejectionCause cause);
+
+    /**
+     * Counts a denied authorization.
+     *
+     * @param resource          the resource access was denied to
+     * @param requiredScopeMask the {@link com.cleverpine.viravaspringhelper.dto.ScopeType#mask() mask} of the
+     *                          required scopes
+     */
+    void countDenial(BaseResource resource, int requiredScopeMask);
+
+    /**
+     * Records a role mapping reload.
+     *
+     * @param durationNanos the time spent loading and compiling the mapping
+     * @param successful    whether the mapping could be loaded and compiled
+     * @param changedRoles  the number of roles whose permissions were added, removed or changed
+     */
+    void recordRoleMappingReload(long durationNanos, boolean successful, int changedRoles);
+}
@@ -1,16 +1,58 @@
 package com.cleverpine.viravaspringhelper.core;
 
+import com.cleverpine.viravaspringhelper.cache.CustomPrincipalInfoCache;
+
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 public abstract class ViravaPrincipalProvider<CPI extends CustomPrincipalInfo> {
 
     private final Class<CPI> cpiClass;
 
+    private CustomPrincipalInfoCache<CPI> customPrincipalInfoCache;
+
+    private ViravaMetrics metrics;
+
     protected ViravaPrincipalProvider(Class<CPI> cpiClass) {
         this.cpiClass = cpiClass;
     }
 
+    /**
+     * Sets a cache for the custom principal info, shared between requests of the same user.
+     * If not set, {@link #provideCustomPrincipalInfo(String)} is called once per request.
+     *
+     * @param customPrincipalInfoCache the cache to use for custom principal info
+     */
+    public void setCustomPrincipalInfoCache(CustomPrincipalInfoCache<CPI> customPrincipalInfoCache) {
+        this.customPrincipalInfoCache = customPrincipalInfoCache;
+    }
+
+    /**
+     * Sets the metrics to record {@link #provideCustomPrincipalInfo(String)} timings to.
+     * If not set, the loads are not timed.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void invalidateCustomPrincipalInfo(String username) {
+        if (customPrincipalInfoCache != null) {
+            customPrincipalInfoCache.invalidate(username);
+        }
+    }
+
+    public void invalidateAllCustomPrincipalInfo() {
+        if (customPrincipalInfoCache != null) {
+            customPrincipalInfoCache.invalidateAll();
+        }
+    }
+
     public abstract CPI provideCustomPrincipalInfo(String username);
 
     public final Optional<ViravaAuthenticationToken> getAuthentication() {
@@ -27,15 +69,75 @@ public abstract class ViravaPrincipalProvider<CPI extends CustomPrincipalInfo> {
             return null;
         }
         var principal = auth.getPrincipal();
-        if (principal == null || principal.getUsername() == null || principal.getUsername().isEmpty()) {
+        if (!hasUsername(principal)) {
             return null;
         }
         CPI customInfo = principal.getCustomPrincipalInfo(cpiClass);
         if (customInfo == null) {
-            customInfo = provideCustomPrincipalInfo(principal.getUsername());
+            var prefetch = principal.getCustomPrincipalInfoPrefetch();
+            customInfo = prefetch == null ?
+                    loadCustomPrincipalInfo(principal.getUsername()) :
+                    cpiClass.cast(join(prefetch));
             principal.setCustomPrincipalInfo(customInfo);
         }
         return customInfo;
     }
 
+    /**
+     * Starts loading the custom principal info of the authenticated user on the given executor.
+     * A later {@link #getCustomPrincipalInfo()} in the same request waits for this load instead of starting its own.
+     * If the executor rejects the load, the info is loaded on demand as usual.
+     *
+     * @param authentication the authentication of the current request
+     * @param executor       the executor to load on
+     */
+    public final void prefetchCustomPrincipalInfo(ViravaAuthenticationToken authentication, Executor executor) {
+        var principal = authentication.getPrincipal();
+        if (!hasUsername(principal) || principal.getCustomPrincipalInfo(cpiClass) != null) {
+            return;
+        }
+        try {
+            var username = principal.getUsername();
+            principal.setCustomPrincipalInfoPrefetch(
+                    CompletableFuture.supplyAsync(() -> loadCustomPrincipalInfo(username), executor));
+        } catch (RejectedExecutionException ignored) {
+            // loaded on demand instead
+        }
+    }
+
+    private CPI loadCustomPrincipalInfo(String username) {
+        return customPrincipalInfoCache == null ?
+                timedProvideCustomPrincipalInfo(username) :
+                customPrincipalInfoCache.get(username, this::timedProvideCustomPrincipalInfo);
+    }
+
+    private CPI timedProvideCustomPrincipalInfo(String username) {
+        if (metrics == null) {
+            return provideCustomPrincipalInfo(username);
+        }
+        var start = System.nanoTime();
+        try {
+            return provideCustomPrincipalInfo(username);
+        } finally {
+            metrics.recordCustomPrincipalInfoLoad(System.nanoTime() - start);
+        }
+    }
+
+    private static boolean hasUsername(ViravaUserPrincipal principal) {
+        return principal != null && principal.getUsername() != null && !principal.getUsername().isEmpty();
+    }
+
+    private static <T> T join(CompletableFuture<T> prefetch) {
+        try {
+            return prefetch.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
 }
@@ -5,8 +5,10 @@ import com.cleverpine.viravaspringhelper.dto.ResourceIdsAccess;
 import com.cleverpine.viravaspringhelper.dto.ScopeType;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 public class ViravaUserPrincipal {
 
@@ -16,40 +18,40 @@ public class ViravaUserPrincipal {
 
     private Boolean isCompanyUser;
 
-    private final Map<BaseResource, Set<ScopeType>> permissionMap;
+    private final RolePermissions rolePermissions;
 
-    private final Map<BaseResource, ResourceIdsAccess> resourceResourceIdsAccessMap;
+    private final String[] resourceIdsClaims;
 
-    private final List<Permission> permissionList;
+    private volatile Map<BaseResource, ResourceIdsAccess> resourceResourceIdsAccessMap;
 
-    private final List<ViravaAuthority> authorityList;
+    private volatile CustomPrincipalInfo customPrincipalInfo;
 
-    private CustomPrincipalInfo customPrincipalInfo;
+    private volatile CompletableFuture<? extends CustomPrincipalInfo> customPrincipalInfoPrefetch;
 
     public ViravaUserPrincipal(String username, List<Permission> permissionList, List<ResourceIdsAccess> resourceIdsAccessList) {
+        this(username, RolePermissions.of(permissionList), resourceIdsAccessList);
+    }
+
+    public ViravaUserPrincipal(String username, RolePermissions rolePermissions, List<ResourceIdsAccess> resourceIdsAccessList) {
         this.username = username;
-        if (permissionList == null || permissionList.isEmpty()) {
-            this.permissionList = Collections.unmodifiableList(new LinkedList<>());
-            this.permissionMap = Collections.unmodifiableMap(new HashMap<>());
-            this.authorityList = Collections.unmodifiableList(new LinkedList<>());
-        } else {
-            this.permissionList = permissionList;
-            this.permissionMap = permissionList.stream()
-                    .collect(Collectors.toUnmodifiableMap(Permission::getResource, Permission::getScopeTypes, (first, second) -> {
-                        var mergedSet = new HashSet<ScopeType>();
-                        mergedSet.addAll(first);
-                        mergedSet.addAll(second);
-                        return mergedSet;
-                    }));
-            this.authorityList = permissionList.stream().flatMap(p -> p.getScopeTypes().stream()
-                    .map(s -> new ViravaAuthority(p.getResource(), s))).collect(Collectors.toUnmodifiableList());
-        }
-        if (resourceIdsAccessList == null || resourceIdsAccessList.isEmpty()) {
-            this.resourceResourceIdsAccessMap = Collections.unmodifiableMap(new HashMap<>());
-        } else {
-            this.resourceResourceIdsAccessMap = resourceIdsAccessList.stream()
-                    .collect(Collectors.toUnmodifiableMap(ResourceIdsAccess::getResource, Function.identity()));
-        }
+        this.rolePermissions = rolePermissions;
+        this.resourceIdsClaims = null;
+        this.resourceResourceIdsAccessMap = toResourceIdsAccessMap(resourceIdsAccessList);
+    }
+
+    /**
+     * Keeps the raw {@code IDS_*} claims and parses them on the first id based authorization check.
+     *
+     * @param resourceIdsClaims the {@code IDS_*} claim of each resource of the permissions' {@link ResourceIndex},
+     *                          {@code null} where absent
+     */
+    private ViravaUserPrincipal(String username, String email, RolePermissions rolePermissions,
+                                String[] resourceIdsClaims, Boolean isCompanyUser) {
+        this.username = username;
+        this.email = email;
+        this.isCompanyUser = isCompanyUser;
+        this.rolePermissions = rolePermissions;
+        this.resourceIdsClaims = resourceIdsClaims;
     }
 
     public ViravaUserPrincipal(String username, String email, List<Permission> permissionList, List<ResourceIdsAccess> resourceIdsAccessList) {
@@ -63,23 +65,64 @@ public class ViravaUserPrincipal {
         this.isCompanyUser = isCompanyUser;
     }
 
+    public ViravaUserPrincipal(String username, String email, RolePermissions rolePermissions, List<ResourceIdsAccess> resourceIdsAccessList, Boolean isCompanyUser) {
+        this(username, rolePermissions, resourceIdsAccessList);
+        this.email = email;
+        this.isCompanyUser = isCompanyUser;
+    }
+
+    private ViravaUserPrincipal(ViravaUserPrincipal source) {
+        this.username = source.username;
+        this.email = source.email;
+        this.isCompanyUser = source.isCompanyUser;
+        this.rolePermissions = source.rolePermissions;
+        this.resourceIdsClaims = source.resourceIdsClaims;
+        this.resourceResourceIdsAccessMap = source.resourceResourceIdsAccessMap;
+    }
+
+    static ViravaUserPrincipal ofResourceIdsClaims(String username, String email, RolePermissions rolePermissions,
+                                                   String[] resourceIdsClaims, Boolean isCompanyUser) {
+        return new ViravaUserPrincipal(username, email, rolePermissions, resourceIdsClaims, isCompanyUser);
+    }
+
+    /**
+     * Creates a principal sharing this principal's immutable identity and permission data,
+     * without the custom principal info attached to the current request.
+     */
+    ViravaUserPrincipal copy() {
+        return new ViravaUserPrincipal(this);
+    }
+
     public <CPI extends CustomPrincipalInfo> void setCustomPrincipalInfo(CPI customPrincipalInfo) {
         this.customPrincipalInfo = customPrincipalInfo;
     }
 
     public <CPI extends CustomPrincipalInfo> CPI getCustomPrincipalInfo(Class<CPI> type) {
-        if (Objects.isNull(customPrincipalInfo)) {
+        var info = customPrincipalInfo;
+        if (Objects.isNull(info)) {
             return null;
         }
-        return type.cast(customPrincipalInfo);
+        return type.cast(info);
+    }
+
+    void setCustomPrincipalInfoPrefetch(CompletableFuture<? extends CustomPrincipalInfo> customPrincipalInfoPrefetch) {
+        this.customPrincipalInfoPrefetch = customPrincipalInfoPrefetch;
+    }
+
+    CompletableFuture<? extends CustomPrincipalInfo> getCustomPrincipalInfoPrefetch() {
+        return customPrincipalInfoPrefetch;
     }
 
     public List<Permission> getPermissionList() {
-        return List.copyOf(permissionList);
+        return List.copyOf(rolePermissions.getPermissionList());
     }
 
     public List<ViravaAuthority> getAuthorityList() {
-        return List.copyOf(authorityList);
+        return rolePermissions.getAuthorityList();
+    }
+
+    public RolePermissions getRolePermissions() {
+        return rolePermissions;
     }
 
     public String getUsername() {
@@ -98,34 +141,188 @@ public class ViravaUserPrincipal {
         if (resource == null || requiredScopes == null) {
             return true;
         }
-        var resourceScopes = permissionMap.get(resource);
-        if (resourceScopes == null || resourceScopes.isEmpty()) {
-            return false;
-        }
-        return !Collections.disjoint(resourceScopes, Set.of(requiredScopes));
+        return rolePermissions.hasAnyScope(resource, ScopeType.maskOf(requiredScopes));
     }
 
     public boolean isAuthorized(BaseResource resource, Long resourceId, boolean requireAllResourceIds, ScopeType... requiredScopes) {
         if (resource == null || requiredScopes == null || requiredScopes.length == 0) {
             return true;
         }
-        var resourceScopes = permissionMap.get(resource);
-        if (resourceScopes == null || resourceScopes.isEmpty()) {
-            return false;
+        return isAuthorized(resource, resourceId, requireAllResourceIds, ScopeType.maskOf(requiredScopes));
+    }
+
+    /**
+     * Same as {@link #isAuthorized(BaseResource, Long, boolean, ScopeType...)}, with the required scopes given as
+     * a bitmask of {@link ScopeType#mask()} values. A mask of 0 requires no scope.
+     */
+    public boolean isAuthorized(BaseResource resource, Long resourceId, boolean requireAllResourceIds, int requiredScopeMask) {
+        if (resource == null || requiredScopeMask == 0) {
+            return true;
         }
-        if (Collections.disjoint(resourceScopes, Set.of(requiredScopes))) {
+        if (!rolePermissions.hasAnyScope(resource, requiredScopeMask)) {
             return false;
         }
-        var resourceIdsAccess = resourceResourceIdsAccessMap.get(resource);
+        var resourceIdsAccess = getResourceIdsAccessMap().get(resource);
 
         if (requireAllResourceIds) {
             return resourceIdsAccess != null && resourceIdsAccess.canAccessAll();
         }
         if (resourceId != null) {
             return resourceIdsAccess != null &&
-                    (resourceIdsAccess.canAccessAll() || resourceIdsAccess.getIdsAccess().contains(resourceId));
+                    resourceIdsAccess.canAccess(resourceId);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ids of the resource the user can access with any of the required scopes, in their original order.
+     * The scopes are checked once for the whole array.
+     *
+     * @param resource       the resource
+     * @param resourceIds    the ids to filter
+     * @param requiredScopes the scopes of which the user needs at least one
+     * @return a new array with the accessible ids
+     */
+    public long[] filterAuthorizedIds(BaseResource resource, long[] resourceIds, ScopeType... requiredScopes) {
+        if (isWithoutRequirement(resource, requiredScopes)) {
+            return resourceIds.clone();
+        }
+        var resourceIdsAccess = getScopedResourceIdsAccess(resource, ScopeType.maskOf(requiredScopes));
+        return resourceIdsAccess == null ? new long[0] : resourceIdsAccess.filterAccessible(resourceIds);
+    }
+
+    /**
+     * Same as {@link #filterAuthorizedIds(BaseResource, long[], ScopeType...)} for a collection of ids.
+     * {@code null} ids are never accessible.
+     *
+     * @return a new list with the accessible ids
+     */
+    public List<Long> filterAuthorizedIds(BaseResource resource, Collection<Long> resourceIds, ScopeType... requiredScopes) {
+        return partitionAuthorizedIds(resource, resourceIds, requiredScopes).get(true);
+    }
+
+    /**
+     * Same as {@link #filterAuthorizedIds(BaseResource, long[], ScopeType...)} for a stream of ids.
+     * The stream is filtered lazily.
+     */
+    public LongStream filterAuthorizedIds(BaseResource resource, LongStream resourceIds, ScopeType... requiredScopes) {
+        if (isWithoutRequirement(resource, requiredScopes)) {
+            return resourceIds;
+        }
+        var resourceIdsAccess = getScopedResourceIdsAccess(resource, ScopeType.maskOf(requiredScopes));
+        return resourceIdsAccess == null ? LongStream.empty() : resourceIds.filter(resourceIdsAccess::canAccess);
+    }
+
+    /**
+     * @return true if the user has any of the required scopes and can access every one of the ids with it. An empty
+     * array is only authorized if the user has the scope.
+     */
+    public boolean isAuthorizedForAll(BaseResource resource, long[] resourceIds, ScopeType... requiredScopes) {
+        if (isWithoutRequirement(resource, requiredScopes)) {
+            return true;
+        }
+        return isAuthorizedForAll(resource, resourceIds, ScopeType.maskOf(requiredScopes));
+    }
+
+    /**
+     * Same as {@link #isAuthorizedForAll(BaseResource, long[], ScopeType...)} for a collection of ids.
+     * A {@code null} id is never accessible.
+     */
+    public boolean isAuthorizedForAll(BaseResource resource, Collection<Long> resourceIds, ScopeType... requiredScopes) {
+        if (isWithoutRequirement(resource, requiredScopes)) {
+            return true;
+        }
+        var requiredScopeMask = ScopeType.maskOf(requiredScopes);
+        if (!rolePermissions.hasAnyScope(resource, requiredScopeMask)) {
+            return false;
+        }
+        // with the scope, an empty list is vacuously accessible even without any id access
+        var resourceIdsAccess = getResourceIdsAccessMap().get(resource);
+        if (resourceIdsAccess == null) {
+            return resourceIds.isEmpty();
+        }
+        for (Long resourceId : resourceIds) {
+            if (resourceId == null || !resourceIdsAccess.canAccess(resourceId)) {
+                return false;
+            }
         }
         return true;
     }
 
+    /**
+     * Same as {@link #isAuthorizedForAll(BaseResource, long[], ScopeType...)}, with the required scopes given as
+     * a bitmask of {@link ScopeType#mask()} values. A mask of 0 requires no scope.
+     */
+    public boolean isAuthorizedForAll(BaseResource resource, long[] resourceIds, int requiredScopeMask) {
+        if (resource == null || requiredScopeMask == 0) {
+            return true;
+        }
+        if (!rolePermissions.hasAnyScope(resource, requiredScopeMask)) {
+            return false;
+        }
+        // with the scope, an empty array is vacuously accessible even without any id access
+        var resourceIdsAccess = getResourceIdsAccessMap().get(resource);
+        return resourceIdsAccess == null ? resourceIds.length == 0 : resourceIdsAccess.canAccessAll(resourceIds);
+    }
+
+    /**
+     * Splits the ids into the ones the user can access with any of the required scopes, under {@code true},
+     * and the ones it cannot, under {@code false}. Both lists keep the original order.
+     */
+    public Map<Boolean, List<Long>> partitionAuthorizedIds(BaseResource resource, Collection<Long> resourceIds, ScopeType... requiredScopes) {
+        var allowed = new ArrayList<Long>(resourceIds.size());
+        var denied = new ArrayList<Long>();
+        if (isWithoutRequirement(resource, requiredScopes)) {
+            allowed.addAll(resourceIds);
+        } else {
+            var resourceIdsAccess = getScopedResourceIdsAccess(resource, ScopeType.maskOf(requiredScopes));
+            for (Long resourceId : resourceIds) {
+                if (resourceIdsAccess != null && resourceId != null && resourceIdsAccess.canAccess(resourceId)) {
+                    allowed.add(resourceId);
+                } else {
+                    denied.add(resourceId);
+                }
+            }
+        }
+        return Map.of(true, allowed, false, denied);
+    }
+
+    private static boolean isWithoutRequirement(BaseResource resource, ScopeType[] requiredScopes) {
+        return resource == null || requiredScopes == null || requiredScopes.length == 0;
+    }
+
+    /**
+     * @return the id access of the resource, or {@code null} if the user has none of the scopes or no id access
+     */
+    private ResourceIdsAccess getScopedResourceIdsAccess(BaseResource resource, int requiredScopeMask) {
+        if (!rolePermissions.hasAnyScope(resource, requiredScopeMask)) {
+            return null;
+        }
+        return getResourceIdsAccessMap().get(resource);
+    }
+
+    private Map<BaseResource, ResourceIdsAccess> getResourceIdsAccessMap() {
+        var resourceIdsAccessMap = resourceResourceIdsAccessMap;
+        if (resourceIdsAccessMap == null) {
+            var resourceIndex = rolePermissions.getResourceIndex();
+            var resourceIdsAccessList = new ArrayList<ResourceIdsAccess>();
+            for (int i = 0; i < resourceIdsClaims.length; i++) {
+                if (resourceIdsClaims[i] != null) {
+                    resourceIdsAccessList.add(ResourceIdsClaimParser.parse(resourceIndex.get(i), resourceIdsClaims[i]));
+                }
+            }
+            resourceIdsAccessMap = toResourceIdsAccessMap(resourceIdsAccessList);
+            resourceResourceIdsAccessMap = resourceIdsAccessMap;
+        }
+        return resourceIdsAccessMap;
+    }
+
+    private static Map<BaseResource, ResourceIdsAccess> toResourceIdsAccessMap(List<ResourceIdsAccess> resourceIdsAccessList) {
+        if (resourceIdsAccessList == null || resourceIdsAccessList.isEmpty()) {
+            return Collections.unmodifiableMap(new HashMap<>());
+        }
+        return resourceIdsAccessList.stream()
+                .collect(Collectors.toUnmodifiableMap(ResourceIdsAccess::getResource, Function.identity()));
+    }
+
 }
@@ -0,0 +1,9 @@
+package com.cleverpine.viravaspringhelper.core;
+
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+@FunctionalInterface
+public interface ViravaWebFilterExceptionHandler {
+    Mono<Void> handle(ServerWebExchange exchange, Exception ex);
+}
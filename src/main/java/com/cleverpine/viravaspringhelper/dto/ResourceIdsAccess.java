@@ -1,20 +1,31 @@
 package com.cleverpine.viravaspringhelper.dto;
 
 import com.cleverpine.viravaspringhelper.core.BaseResource;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 public class ResourceIdsAccess {
 
     private final BaseResource resource;
 
-    private final List<Long> idsAccess;
+    /**
+     * The accessible ids, sorted ascending and without duplicates.
+     */
+    private final long[] idsAccess;
 
     private final boolean canAccessAll;
 
+    private volatile List<Long> idsAccessList;
+
     public ResourceIdsAccess(BaseResource resource, List<Long> idsAccess, boolean canAccessAll) {
+        this(resource, idsAccess == null ?
+                new long[0] :
+                idsAccess.stream().mapToLong(Long::longValue).toArray(), canAccessAll);
+    }
+
+    public ResourceIdsAccess(BaseResource resource, long[] idsAccess, boolean canAccessAll) {
         this.resource = resource;
-        this.idsAccess = idsAccess;
+        this.idsAccess = toSortedDistinct(idsAccess);
         this.canAccessAll = canAccessAll;
     }
 
@@ -22,11 +33,102 @@ public class ResourceIdsAccess {
         return resource;
     }
 
+    /**
+     * @return the accessible ids in ascending order
+     */
     public List<Long> getIdsAccess() {
-        return Collections.unmodifiableList(idsAccess);
+        var ids = idsAccessList;
+        if (ids == null) {
+            ids = Arrays.stream(idsAccess).boxed().toList();
+            idsAccessList = ids;
+        }
+        return ids;
     }
 
     public boolean canAccessAll() {
         return canAccessAll;
     }
+
+    /**
+     * Checks whether the resource with the given id can be accessed, in O(log n) of the number of accessible ids.
+     *
+     * @param resourceId the id of the resource
+     * @return true if all ids can be accessed or the id is one of the accessible ids
+     */
+    public boolean canAccess(long resourceId) {
+        return canAccessAll || Arrays.binarySearch(idsAccess, resourceId) >= 0;
+    }
+
+    /**
+     * Returns the accessible ids among the given ones, in their original order. Sorted input is intersected with
+     * a single merge pass, unsorted input with a binary search per id.
+     *
+     * @param resourceIds the ids to filter
+     * @return a new array with the accessible ids
+     */
+    public long[] filterAccessible(long[] resourceIds) {
+        if (canAccessAll) {
+            return resourceIds.clone();
+        }
+        var accessible = new long[resourceIds.length];
+        var count = 0;
+        if (isSorted(resourceIds)) {
+            var i = 0;
+            for (long resourceId : resourceIds) {
+                while (i < idsAccess.length && idsAccess[i] < resourceId) {
+                    i++;
+                }
+                if (i < idsAccess.length && idsAccess[i] == resourceId) {
+                    accessible[count++] = resourceId;
+                }
+            }
+        } else {
+            for (long resourceId : resourceIds) {
+                if (Arrays.binarySearch(idsAccess, resourceId) >= 0) {
+                    accessible[count++] = resourceId;
+                }
+            }
+        }
+        return count == accessible.length ? accessible : Arrays.copyOf(accessible, count);
+    }
+
+    /**
+     * @param resourceIds the ids to check
+     * @return true if every one of the ids can be accessed
+     */
+    public boolean canAccessAll(long[] resourceIds) {
+        if (canAccessAll) {
+            return true;
+        }
+        for (long resourceId : resourceIds) {
+            if (Arrays.binarySearch(idsAccess, resourceId) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSorted(long[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] < ids[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] toSortedDistinct(long[] ids) {
+        if (ids == null || ids.length == 0) {
+            return new long[0];
+        }
+        var sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        var distinctCount = 1;
+        for (int i = 1; i < sortedIds.length; i++) {
+            if (sortedIds[i] != sortedIds[distinctCount - 1]) {
+                sortedIds[distinctCount++] = sortedIds[i];
+            }
+        }
+        return distinctCount == sortedIds.length ? sortedIds : Arrays.copyOf(sortedIds, distinctCount);
+    }
 }
@@ -1,9 +1,36 @@
 package com.cleverpine.viravaspringhelper.dto;
 
+import java.util.Collection;
+
 public enum ScopeType {
     CREATE, READ, UPDATE, DELETE;
 
+    private final int mask = 1 << ordinal();
+
     public String scope() {
         return this.name();
     }
+
+    /**
+     * Returns the single bit representing this scope type in a scope mask.
+     */
+    public int mask() {
+        return mask;
+    }
+
+    public static int maskOf(ScopeType... scopeTypes) {
+        var mask = 0;
+        for (ScopeType scopeType : scopeTypes) {
+            mask |= scopeType.mask;
+        }
+        return mask;
+    }
+
+    public static int maskOf(Collection<ScopeType> scopeTypes) {
+        var mask = 0;
+        for (ScopeType scopeType : scopeTypes) {
+            mask |= scopeType.mask;
+        }
+        return mask;
+    }
 }
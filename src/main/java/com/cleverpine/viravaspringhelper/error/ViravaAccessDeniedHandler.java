@@ -0,0 +1,46 @@
+package com.cleverpine.viravaspringhelper.error;
+
+import com.cleverpine.viravaspringhelper.core.ViravaFilterExceptionHandler;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAccessDeniedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.web.access.AccessDeniedHandler;
+
+import java.io.IOException;
+
+/**
+ * Answers requests denied with an {@link AccessDeniedException}, such as the {@link ViravaAccessDeniedException}
+ * of {@code @ViravaSecured} methods, with a 403 status code.
+ */
+public class ViravaAccessDeniedHandler implements AccessDeniedHandler {
+
+    private ViravaFilterExceptionHandler viravaFilterExceptionHandler;
+
+    /**
+     * Creates a new instance of {@link ViravaAccessDeniedHandler} writing the default error response with
+     * {@link ViravaErrorResponseWriter#FORBIDDEN}.
+     */
+    public ViravaAccessDeniedHandler() {
+    }
+
+    /**
+     * Creates a new instance of {@link ViravaAccessDeniedHandler} with the given {@link ViravaFilterExceptionHandler}.
+     * Use this constructor if you want to handle the error response yourself.
+     *
+     * @param viravaFilterExceptionHandler the {@link ViravaFilterExceptionHandler} to use for handling the error response
+     */
+    public ViravaAccessDeniedHandler(ViravaFilterExceptionHandler viravaFilterExceptionHandler) {
+        this.viravaFilterExceptionHandler = viravaFilterExceptionHandler;
+    }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, AccessDeniedException accessDeniedException)
+            throws IOException {
+        if (viravaFilterExceptionHandler != null) {
+            viravaFilterExceptionHandler.handle(request, response, accessDeniedException);
+        } else {
+            ViravaErrorResponseWriter.FORBIDDEN.write(request, response, accessDeniedException.getMessage());
+        }
+    }
+}
@@ -1,32 +1,34 @@
 package com.cleverpine.viravaspringhelper.error;
 
 import com.cleverpine.viravaspringhelper.core.ViravaFilterExceptionHandler;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.AuthenticationEntryPoint;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
-import java.util.function.Supplier;
 
 public class ViravaAuthErrorEntryPoint implements AuthenticationEntryPoint {
 
-    private ObjectMapper objectMapper;
     private ViravaFilterExceptionHandler viravaFilterExceptionHandler;
 
     /**
-     * Creates a new instance of {@link ViravaAuthErrorEntryPoint} with the given {@link ObjectMapper}.
-     * Use this constructor if you want the default error response to be generated.
+     * Creates a new instance of {@link ViravaAuthErrorEntryPoint} writing the default error response with
+     * {@link ViravaErrorResponseWriter#UNAUTHORIZED}.
+     */
+    public ViravaAuthErrorEntryPoint() {
+    }
+
+    /**
+     * Creates a new instance of {@link ViravaAuthErrorEntryPoint} writing the default error response.
      *
-     * @param objectMapper the {@link ObjectMapper} to use for writing the error response
+     * @param objectMapper not used, the response is written by {@link ViravaErrorResponseWriter#UNAUTHORIZED}
+     * @deprecated use {@link #ViravaAuthErrorEntryPoint()}
      */
+    @Deprecated
     public ViravaAuthErrorEntryPoint(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this();
     }
 
     /**
@@ -45,16 +47,7 @@ public class ViravaAuthErrorEntryPoint implements AuthenticationEntryPoint {
         if (viravaFilterExceptionHandler != null) {
             viravaFilterExceptionHandler.handle(request, response, authException);
         } else {
-            var unauthorizedHttpStatus = HttpStatus.UNAUTHORIZED;
-            response.setStatus(unauthorizedHttpStatus.value());
-            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-            var errorResponse = new ViravaErrorResponse(
-                    LocalDateTime.now(),
-                    unauthorizedHttpStatus.value(),
-                    unauthorizedHttpStatus.getReasonPhrase(),
-                    authException.getMessage(),
-                    request.getRequestURI());
-            response.getWriter().write(objectMapper.writeValueAsString(errorResponse));
+            ViravaErrorResponseWriter.UNAUTHORIZED.write(request, response, authException.getMessage());
         }
     }
 }
@@ -0,0 +1,213 @@
+package com.cleverpine.viravaspringhelper.error;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes the default error body, with the fields of {@link ViravaErrorResponse}, straight to the response stream.
+ * <p>
+ * The body is assembled from precomputed bytes for the status and error, a timestamp formatted at most once per
+ * millisecond, and the escaped message and path, into a single array of the exact size. Nothing else is allocated,
+ * which keeps rejecting a flood of bad tokens cheap. The timestamp is the local date and time with millisecond
+ * precision, e.g. {@code "2024-05-01T12:30:45.123"}.
+ * </p>
+ */
+public final class ViravaErrorResponseWriter {
+
+    public static final ViravaErrorResponseWriter UNAUTHORIZED = new ViravaErrorResponseWriter(HttpStatus.UNAUTHORIZED);
+
+    public static final ViravaErrorResponseWriter FORBIDDEN = new ViravaErrorResponseWriter(HttpStatus.FORBIDDEN);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private static final byte[] TIMESTAMP_PREFIX = ascii("{\"timestamp\":\"");
+
+    private static final byte[] MESSAGE_PREFIX = ascii(",\"message\":");
+
+    private static final byte[] PATH_PREFIX = ascii(",\"path\":");
+
+    private static final byte[] NULL = ascii("null");
+
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+
+    private static volatile Timestamp timestamp = new Timestamp(0L, new byte[0]);
+
+    private final int status;
+
+    private final byte[] statusAndError;
+
+    private ViravaErrorResponseWriter(HttpStatus status) {
+        this.status = status.value();
+        this.statusAndError = ascii("\",\"status\":" + status.value() + ",\"error\":\"" + status.getReasonPhrase() + "\"");
+    }
+
+    /**
+     * Sets the status and the JSON content type of the response, and writes the error body for the request's URI.
+     *
+     * @param request  the rejected request
+     * @param response the response to write to
+     * @param message  the error message, may be {@code null}
+     * @throws IOException if the body cannot be written
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, String message) throws IOException {
+        var body = toBytes(message, request.getRequestURI());
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        var out = response.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * Writes the error body to a stream.
+     *
+     * @param out     the stream to write to
+     * @param message the error message, may be {@code null}
+     * @param path    the request path, may be {@code null}
+     * @throws IOException if the body cannot be written
+     */
+    public void writeTo(OutputStream out, String message, String path) throws IOException {
+        out.write(toBytes(message, path));
+    }
+
+    private byte[] toBytes(String message, String path) {
+        var timestampBytes = currentTimestamp();
+        var body = new byte[TIMESTAMP_PREFIX.length + timestampBytes.length + statusAndError.length
+                + MESSAGE_PREFIX.length + jsonLength(message) + PATH_PREFIX.length + jsonLength(path) + 1];
+        var position = copy(TIMESTAMP_PREFIX, body, 0);
+        position = copy(timestampBytes, body, position);
+        position = copy(statusAndError, body, position);
+        position = copy(MESSAGE_PREFIX, body, position);
+        position = writeJson(message, body, position);
+        position = copy(PATH_PREFIX, body, position);
+        position = writeJson(path, body, position);
+        body[position] = '}';
+        return body;
+    }
+
+    private static byte[] currentTimestamp() {
+        var now = System.currentTimeMillis();
+        var current = timestamp;
+        if (current.millis() != now) {
+            var formatted = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault())
+                    .format(TIMESTAMP_FORMATTER);
+            current = new Timestamp(now, ascii(formatted));
+            timestamp = current;
+        }
+        return current.bytes();
+    }
+
+    private static int copy(byte[] source, byte[] target, int position) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    /**
+     * Returns the length of the string as a quoted and escaped JSON string in UTF-8.
+     */
+    private static int jsonLength(String value) {
+        if (value == null) {
+            return NULL.length;
+        }
+        var length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t') {
+                length += 2;
+            } else if (c < 0x20) {
+                length += 6;
+            } else if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 6;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int writeJson(String value, byte[] target, int position) {
+        if (value == null) {
+            return copy(NULL, target, position);
+        }
+        target[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"', '\\' -> {
+                    target[position++] = '\\';
+                    target[position++] = (byte) c;
+                }
+                case '\n' -> position = writeShortEscape('n', target, position);
+                case '\r' -> position = writeShortEscape('r', target, position);
+                case '\t' -> position = writeShortEscape('t', target, position);
+                default -> {
+                    if (c < 0x20) {
+                        position = writeUnicodeEscape(c, target, position);
+                    } else if (c < 0x80) {
+                        target[position++] = (byte) c;
+                    } else if (c < 0x800) {
+                        target[position++] = (byte) (0xC0 | (c >> 6));
+                        target[position++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        var codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        target[position++] = (byte) (0xF0 | (codePoint >> 18));
+                        target[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                        target[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                        target[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                    } else if (Character.isSurrogate(c)) {
+                        position = writeUnicodeEscape(c, target, position);
+                    } else {
+                        target[position++] = (byte) (0xE0 | (c >> 12));
+                        target[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        target[position++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                }
+            }
+        }
+        target[position++] = '"';
+        return position;
+    }
+
+    private static int writeShortEscape(char escape, byte[] target, int position) {
+        target[position++] = '\\';
+        target[position++] = (byte) escape;
+        return position;
+    }
+
+    private static int writeUnicodeEscape(char c, byte[] target, int position) {
+        target[position++] = '\\';
+        target[position++] = 'u';
+        target[position++] = HEX_DIGITS[(c >> 12) & 0xF];
+        target[position++] = HEX_DIGITS[(c >> 8) & 0xF];
+        target[position++] = HEX_DIGITS[(c >> 4) & 0xF];
+        target[position++] = HEX_DIGITS[c & 0xF];
+        return position;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private record Timestamp(long millis, byte[] bytes) {
+    }
+}
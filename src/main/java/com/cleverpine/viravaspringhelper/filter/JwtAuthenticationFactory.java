@@ -0,0 +1,218 @@
+package com.cleverpine.viravaspringhelper.filter;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.cleverpine.viravaspringhelper.cache.TokenDigest;
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaims;
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaimsCodec;
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaimsStore;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.IntrospectionTokenAuthenticator;
+import com.cleverpine.viravaspringhelper.core.StreamingClaimsReader;
+import com.cleverpine.viravaspringhelper.core.ViravaAuthenticationToken;
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Builds the authentication from a verified token's payload, or from the claims a claims authenticator returned for
+ * an opaque token. Shared by {@link ViravaFilter} and {@link ViravaWebFilter}.
+ */
+final class JwtAuthenticationFactory {
+
+    private final RoleConfig<?, ?> roleConfig;
+    private final ObjectMapper objectMapper;
+    private final AuthTokenConfig authTokenConfig;
+    private final boolean opaqueTokens;
+    private boolean streamingClaimsExtraction;
+    private VerifiedClaimsStore verifiedClaimsStore;
+    private StreamingClaimsReader streamingClaimsReader;
+    private ViravaMetrics metrics;
+    private boolean eraseCredentialsAfterAuthentication;
+    private Duration opaqueTokenCacheMaximumTtl = IntrospectionTokenAuthenticator.DEFAULT_CACHE_MAXIMUM_TTL;
+
+    JwtAuthenticationFactory(RoleConfig<?, ?> roleConfig, ObjectMapper objectMapper, AuthTokenConfig authTokenConfig) {
+        this(roleConfig, objectMapper, authTokenConfig, false);
+    }
+
+    /**
+     * @param opaqueTokens whether the tokens have no payload of their own, so that all their claims are stored and
+     *                     restored instead of only the ones Virava needs
+     */
+    JwtAuthenticationFactory(RoleConfig<?, ?> roleConfig, ObjectMapper objectMapper, AuthTokenConfig authTokenConfig,
+                             boolean opaqueTokens) {
+        this.roleConfig = roleConfig;
+        this.objectMapper = objectMapper;
+        this.authTokenConfig = authTokenConfig;
+        this.opaqueTokens = opaqueTokens;
+    }
+
+    void setStreamingClaimsExtraction(boolean streamingClaimsExtraction) {
+        this.streamingClaimsExtraction = streamingClaimsExtraction;
+        updateStreamingClaimsReader();
+    }
+
+    /**
+     * Sets the store to share the claims of verified tokens through. Only the claims Virava needs are stored,
+     * so they are always read with streaming claims extraction.
+     */
+    void setVerifiedClaimsStore(VerifiedClaimsStore verifiedClaimsStore) {
+        this.verifiedClaimsStore = verifiedClaimsStore;
+        updateStreamingClaimsReader();
+    }
+
+    private void updateStreamingClaimsReader() {
+        this.streamingClaimsReader = streamingClaimsExtraction || verifiedClaimsStore != null ?
+                new StreamingClaimsReader(objectMapper, authTokenConfig) :
+                null;
+    }
+
+    void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void setEraseCredentialsAfterAuthentication(boolean eraseCredentialsAfterAuthentication) {
+        this.eraseCredentialsAfterAuthentication = eraseCredentialsAfterAuthentication;
+    }
+
+    void setOpaqueTokenCacheMaximumTtl(Duration opaqueTokenCacheMaximumTtl) {
+        this.opaqueTokenCacheMaximumTtl = opaqueTokenCacheMaximumTtl;
+    }
+
+    /**
+     * Caps the expiry of an opaque token's cache entries, since such a token is only checked again once they expire
+     * and may have been revoked meanwhile.
+     *
+     * @param expiresAt the expiry of the token, may be {@code null}
+     * @return the expiry of the token's cache entries
+     */
+    Instant opaqueTokenCacheExpiry(Instant expiresAt) {
+        var maximumExpiry = Instant.now().plus(opaqueTokenCacheMaximumTtl);
+        return expiresAt == null || expiresAt.isAfter(maximumExpiry) ? maximumExpiry : expiresAt;
+    }
+
+    /**
+     * @throws ViravaAuthenticationException if the payload of the token cannot be read
+     */
+    ViravaAuthenticationToken create(DecodedJWT jwt, String tokenString) {
+        try {
+            return complete(build(jwt, tokenString));
+        } catch (IOException ex) {
+            throw payloadReadFailure(ex);
+        }
+    }
+
+    ViravaAuthenticationToken create(VerifiedClaims verifiedClaims, String tokenString) {
+        var claims = verifiedClaims.claims();
+        if (verifiedClaimsStore != null) {
+            store(tokenString, claims, opaqueTokenCacheExpiry(verifiedClaims.expiresAt()));
+        }
+        return complete(ViravaAuthenticationToken
+                .ofAuthorized(claims, () -> claims, roleConfig, authTokenConfig, tokenString, metrics));
+    }
+
+    /**
+     * Rebuilds the authentication of a token from the claims another node stored for it after verifying it.
+     * A failing store or an entry that cannot be decoded count as a miss.
+     *
+     * @return the authentication with the token's expiry, or {@code null} if no claims are stored for the token
+     */
+    RestoredAuthentication restore(String tokenString) {
+        if (verifiedClaimsStore == null) {
+            return null;
+        }
+        VerifiedClaims verifiedClaims;
+        try {
+            var encodedClaims = verifiedClaimsStore.get(TokenDigest.of(tokenString));
+            if (encodedClaims == null) {
+                return null;
+            }
+            verifiedClaims = VerifiedClaimsCodec.decode(encodedClaims);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+        var expiresAt = verifiedClaims.expiresAt();
+        if (expiresAt != null && !expiresAt.isAfter(Instant.now())) {
+            return null;
+        }
+        var claims = verifiedClaims.claims();
+        Supplier<Map<String, Object>> payloadJsonMapSupplier = opaqueTokens ?
+                () -> claims :
+                () -> readPayloadJsonMap(decodePayload(tokenString));
+        var authentication = ViravaAuthenticationToken.ofAuthorized(claims, payloadJsonMapSupplier, roleConfig,
+                authTokenConfig, tokenString, metrics);
+        return new RestoredAuthentication(complete(authentication), expiresAt);
+    }
+
+    private ViravaAuthenticationToken complete(ViravaAuthenticationToken authentication) {
+        if (eraseCredentialsAfterAuthentication) {
+            authentication.eraseCredentials();
+        }
+        return authentication;
+    }
+
+    private ViravaAuthenticationToken build(DecodedJWT jwt, String tokenString) throws IOException {
+        var parseStart = metrics == null ? 0L : System.nanoTime();
+        if (streamingClaimsReader == null) {
+            var payload = new String(Base64.getUrlDecoder().decode(jwt.getPayload()));
+            Map<String, Object> payloadJsonMap = objectMapper.readValue(payload, new TypeReference<>() {
+            });
+            recordParse(parseStart);
+            return ViravaAuthenticationToken
+                    .ofAuthorized(payloadJsonMap, () -> payloadJsonMap, roleConfig, authTokenConfig, tokenString, metrics);
+        }
+        var payload = Base64.getUrlDecoder().decode(jwt.getPayload());
+        var claimsMap = streamingClaimsReader.read(payload);
+        recordParse(parseStart);
+        if (verifiedClaimsStore != null) {
+            store(tokenString, claimsMap, jwt.getExpiresAtAsInstant());
+        }
+        return ViravaAuthenticationToken
+                .ofAuthorized(claimsMap, () -> readPayloadJsonMap(payload), roleConfig, authTokenConfig, tokenString, metrics);
+    }
+
+    private void store(String tokenString, Map<String, Object> claimsMap, Instant expiresAt) {
+        try {
+            verifiedClaimsStore.put(TokenDigest.of(tokenString),
+                    VerifiedClaimsCodec.encode(new VerifiedClaims(claimsMap, expiresAt)), expiresAt);
+        } catch (RuntimeException ignored) {
+            // the claims are shared on a best effort basis, the token is verified again by the other nodes
+        }
+    }
+
+    private static byte[] decodePayload(String tokenString) {
+        var payloadStart = tokenString.indexOf('.') + 1;
+        var payloadEnd = tokenString.indexOf('.', payloadStart);
+        return Base64.getUrlDecoder().decode(tokenString.substring(payloadStart, payloadEnd));
+    }
+
+    private void recordParse(long parseStart) {
+        if (metrics != null) {
+            metrics.recordFilterPhase(ViravaMetrics.FilterPhase.PARSE, System.nanoTime() - parseStart);
+        }
+    }
+
+    private Map<String, Object> readPayloadJsonMap(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, new TypeReference<>() {
+            });
+        } catch (IOException ex) {
+            throw payloadReadFailure(ex);
+        }
+    }
+
+    private static ViravaAuthenticationException payloadReadFailure(IOException ex) {
+        return new ViravaAuthenticationException("Invalid token payload", ex);
+    }
+
+    record RestoredAuthentication(ViravaAuthenticationToken authentication, Instant expiresAt) {
+    }
+}
@@ -1,48 +1,108 @@
 package com.cleverpine.viravaspringhelper.filter;
 
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.cleverpine.viravaspringhelper.cache.RejectedTokenCache;
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaims;
+import com.cleverpine.viravaspringhelper.cache.VerifiedClaimsStore;
+import com.cleverpine.viravaspringhelper.cache.VerifiedTokenCache;
 import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
 import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.IntrospectionTokenAuthenticator;
 import com.cleverpine.viravaspringhelper.core.ViravaFilterExceptionHandler;
 import com.cleverpine.viravaspringhelper.core.TokenAuthenticator;
 import com.cleverpine.viravaspringhelper.core.ViravaAuthenticationToken;
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
+import com.cleverpine.viravaspringhelper.core.ViravaPrincipalProvider;
+import com.cleverpine.viravaspringhelper.error.ViravaErrorResponseWriter;
 import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Base64;
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 public class ViravaFilter extends OncePerRequestFilter {
 
     public static final String BEARER_PREFIX = "Bearer ";
 
-    private final RoleConfig<?, ?> roleConfig;
-    private final ObjectMapper objectMapper;
-    private final AuthTokenConfig authTokenConfig;
     private final TokenAuthenticator<DecodedJWT> tokenAuthenticator;
+    private final TokenAuthenticator<VerifiedClaims> claimsAuthenticator;
+    private final JwtAuthenticationFactory authenticationFactory;
+    private final RoleConfig<?, ?> roleConfig;
     private ViravaFilterExceptionHandler filterExceptionHandler;
+    private VerifiedTokenCache verifiedTokenCache;
+    private Runnable verifiedTokenCacheReloadListenerRemoval;
+    private RejectedTokenCache rejectedTokenCache;
+    private ViravaPrincipalProvider<?> prefetchPrincipalProvider;
+    private Executor prefetchExecutor;
+    private ViravaMetrics metrics;
 
     public ViravaFilter(RoleConfig<?, ?> roleConfig, ObjectMapper objectMapper, AuthTokenConfig authTokenConfig, TokenAuthenticator<DecodedJWT> tokenAuthenticator) {
-        this.roleConfig = roleConfig;
-        this.objectMapper = objectMapper;
-        this.authTokenConfig = authTokenConfig;
+        this(roleConfig, tokenAuthenticator, null, new JwtAuthenticationFactory(roleConfig, objectMapper, authTokenConfig));
+    }
+
+    private ViravaFilter(RoleConfig<?, ?> roleConfig, TokenAuthenticator<DecodedJWT> tokenAuthenticator,
+                         TokenAuthenticator<VerifiedClaims> claimsAuthenticator, JwtAuthenticationFactory authenticationFactory) {
         this.tokenAuthenticator = tokenAuthenticator;
+        this.claimsAuthenticator = claimsAuthenticator;
+        this.authenticationFactory = authenticationFactory;
+        this.roleConfig = roleConfig;
+    }
+
+    /**
+     * Creates a filter for tokens whose claims are obtained by the authenticator rather than read from the token,
+     * such as opaque tokens checked by an {@link IntrospectionTokenAuthenticator}. The paths configured in
+     * {@link AuthTokenConfig} are read from the returned claims. The token is cached until their expiry, but never
+     * longer than the opaque token cache maximum TTL, see {@link #setOpaqueTokenCacheMaximumTtl(Duration)}; for an
+     * {@link IntrospectionTokenAuthenticator}, this is its own cache maximum TTL.
+     *
+     * @param roleConfig          the role config
+     * @param objectMapper        the object mapper
+     * @param authTokenConfig     the paths of the username, email, roles and company user flag in the claims
+     * @param claimsAuthenticator the authenticator returning the claims of valid tokens
+     * @return the filter
+     */
+    public static ViravaFilter ofClaimsAuthenticator(RoleConfig<?, ?> roleConfig, ObjectMapper objectMapper,
+                                                     AuthTokenConfig authTokenConfig,
+                                                     TokenAuthenticator<VerifiedClaims> claimsAuthenticator) {
+        var authenticationFactory = new JwtAuthenticationFactory(roleConfig, objectMapper, authTokenConfig, true);
+        if (claimsAuthenticator instanceof IntrospectionTokenAuthenticator introspectionTokenAuthenticator) {
+            authenticationFactory.setOpaqueTokenCacheMaximumTtl(introspectionTokenAuthenticator.getCacheMaximumTtl());
+        }
+        return new ViravaFilter(roleConfig, null, Objects.requireNonNull(claimsAuthenticator, "Claims authenticator cannot be null"),
+                authenticationFactory);
+    }
+
+    /**
+     * Sets how long the authentication of an opaque token is kept by the verified token cache and the verified claims
+     * store at most. This is how long a revoked token may still be accepted. Only used by filters created with
+     * {@link #ofClaimsAuthenticator}, and defaults to {@link IntrospectionTokenAuthenticator#DEFAULT_CACHE_MAXIMUM_TTL}
+     * or the cache maximum TTL of the given {@link IntrospectionTokenAuthenticator}.
+     *
+     * @param opaqueTokenCacheMaximumTtl the maximum TTL
+     */
+    public void setOpaqueTokenCacheMaximumTtl(Duration opaqueTokenCacheMaximumTtl) {
+        if (opaqueTokenCacheMaximumTtl == null || opaqueTokenCacheMaximumTtl.isNegative() || opaqueTokenCacheMaximumTtl.isZero()) {
+            throw new IllegalArgumentException("Opaque token cache maximum TTL must be positive");
+        }
+        authenticationFactory.setOpaqueTokenCacheMaximumTtl(opaqueTokenCacheMaximumTtl);
     }
 
     /**
      * Sets a consumer to handle unauthorized responses.
-     * If not set, the filter will return a 401 status code with the same content type as the request.
+     * If not set, the filter will return a 401 status code with the default JSON error body written by
+     * {@link ViravaErrorResponseWriter#UNAUTHORIZED}.
      * <p>
      * Example:
      * </p>
@@ -64,6 +124,110 @@ public class ViravaFilter extends OncePerRequestFilter {
         this.filterExceptionHandler = filterExceptionHandler;
     }
 
+    /**
+     * Sets a cache for already verified tokens. When set, a token seen before is not verified and parsed again
+     * until it expires; its authentication is taken from the cache instead. The cache is cleared whenever the role
+     * mapping of the {@link RoleConfig} is reloaded. If not set, every request is fully verified.
+     *
+     * @param verifiedTokenCache the cache to use for verified tokens
+     */
+    public void setVerifiedTokenCache(VerifiedTokenCache verifiedTokenCache) {
+        if (verifiedTokenCacheReloadListenerRemoval != null) {
+            verifiedTokenCacheReloadListenerRemoval.run();
+            verifiedTokenCacheReloadListenerRemoval = null;
+        }
+        this.verifiedTokenCache = verifiedTokenCache;
+        if (verifiedTokenCache != null) {
+            verifiedTokenCacheReloadListenerRemoval = roleConfig.addReloadListener(diff -> verifiedTokenCache.invalidateAll());
+        }
+    }
+
+    /**
+     * Sets a cache for recently rejected tokens. When set, a token rejected for a reason that does not change on retry
+     * is rejected again without being verified, until the cache entry expires. The cached exception is passed to the
+     * {@link #setFilterExceptionHandler(ViravaFilterExceptionHandler) filter exception handler} as usual.
+     * If not set, every rejected token is fully verified again.
+     *
+     * @param rejectedTokenCache the cache to use for rejected tokens
+     */
+    public void setRejectedTokenCache(RejectedTokenCache rejectedTokenCache) {
+        this.rejectedTokenCache = rejectedTokenCache;
+    }
+
+    /**
+     * Enables or disables streaming claims extraction. When enabled, only the paths configured in
+     * {@link AuthTokenConfig} and the {@code IDS_*} claims are read from the token payload, in a single pass
+     * over the decoded bytes. The full payload is parsed only if the application asks for another claim through
+     * {@link ViravaAuthenticationToken#getJsonAttr(String)} or {@link ViravaAuthenticationToken#getJsonListAttr(String)}.
+     * Disabled by default.
+     *
+     * @param streamingClaimsExtraction whether to use streaming claims extraction
+     */
+    public void setStreamingClaimsExtraction(boolean streamingClaimsExtraction) {
+        authenticationFactory.setStreamingClaimsExtraction(streamingClaimsExtraction);
+    }
+
+    /**
+     * Sets a store shared with the other nodes of the application, keeping the claims of verified tokens. When set,
+     * a token already verified by any node is not verified again; its authentication is rebuilt from the stored
+     * claims instead, and the claims of every token verified here are stored for the others. Implies streaming
+     * claims extraction, see {@link #setStreamingClaimsExtraction(boolean)}. Combine it with a
+     * {@link #setVerifiedTokenCache(VerifiedTokenCache) verified token cache} to avoid a store lookup per request.
+     * If not set, every node verifies every token itself.
+     *
+     * @param verifiedClaimsStore the store to share verified claims through
+     */
+    public void setVerifiedClaimsStore(VerifiedClaimsStore verifiedClaimsStore) {
+        authenticationFactory.setVerifiedClaimsStore(verifiedClaimsStore);
+    }
+
+    /**
+     * Enables or disables erasing the credentials of the authentication once it is built. When enabled, the raw
+     * token and the token payload are dropped and only the configured claims, roles and permissions stay in memory
+     * for the rest of the request, which matters for long-running async and streaming requests.
+     * {@link ViravaAuthenticationToken#getCredentials()} then returns {@code null}, and
+     * {@link ViravaAuthenticationToken#getJsonAttr(String)} and {@link ViravaAuthenticationToken#getJsonListAttr(String)}
+     * can no longer be used. Disabled by default.
+     *
+     * @param eraseCredentialsAfterAuthentication whether to erase the credentials
+     */
+    public void setEraseCredentialsAfterAuthentication(boolean eraseCredentialsAfterAuthentication) {
+        authenticationFactory.setEraseCredentialsAfterAuthentication(eraseCredentialsAfterAuthentication);
+    }
+
+    /**
+     * Enables prefetching of the custom principal info. When enabled, loading the info of an authenticated user
+     * starts on the executor as soon as the token is verified, and {@link ViravaPrincipalProvider#getCustomPrincipalInfo()}
+     * waits for that load, so its latency overlaps with the rest of the request handling.
+     * The load runs with the request's security context. Note that the info is loaded even for requests that never
+     * ask for it. Disabled by default.
+     * <p>
+     * Example:
+     * </p>
+     * <pre>{@code
+     * viravaFilter.setCustomPrincipalInfoPrefetch(principalProvider, Executors.newFixedThreadPool(16));
+     * }</pre>
+     * On Java 21 or later, a virtual thread per task executor can be used instead of a bounded pool.
+     *
+     * @param principalProvider the provider loading the custom principal info
+     * @param executor          the executor to load on
+     */
+    public void setCustomPrincipalInfoPrefetch(ViravaPrincipalProvider<?> principalProvider, Executor executor) {
+        this.prefetchPrincipalProvider = principalProvider;
+        this.prefetchExecutor = new DelegatingSecurityContextExecutor(executor);
+    }
+
+    /**
+     * Sets the metrics to record the authentication phases and rejections to.
+     * If not set, the filter does not time anything.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+        authenticationFactory.setMetrics(metrics);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
@@ -73,22 +237,83 @@ public class ViravaFilter extends OncePerRequestFilter {
         }
         var tokenString = authorizationHeader.substring(BEARER_PREFIX.length());
         try {
-            var jwt = tokenAuthenticator.process(tokenString);
-            var payload = new String(Base64.getUrlDecoder().decode(jwt.getPayload()));
-            Map<String, Object> payloadJsonMap = objectMapper.readValue(payload, new TypeReference<>() {
-            });
-            var authentication = ViravaAuthenticationToken
-                    .ofAuthorized(payloadJsonMap, roleConfig, authTokenConfig, tokenString);
+            var authentication = verifiedTokenCache == null ? null : verifiedTokenCache.get(tokenString);
+            if (authentication == null) {
+                authentication = authenticate(tokenString);
+            }
             SecurityContextHolder.getContext().setAuthentication(authentication);
+            if (prefetchPrincipalProvider != null) {
+                prefetchPrincipalProvider.prefetchCustomPrincipalInfo(authentication, prefetchExecutor);
+            }
             filterChain.doFilter(request, response);
         } catch (ViravaAuthenticationException | JsonProcessingException exception) {
+            if (metrics != null) {
+                metrics.countRejection(ViravaMetrics.RejectionCause.of(exception));
+            }
             if (filterExceptionHandler == null) {
-                var contentType = request.getHeader(HttpHeaders.ACCEPT);
-                response.setStatus(HttpStatus.UNAUTHORIZED.value());
-                response.setContentType(contentType);
+                ViravaErrorResponseWriter.UNAUTHORIZED.write(request, response, exception.getMessage());
             } else {
                 filterExceptionHandler.handle(request, response, exception);
             }
         }
     }
+
+    private ViravaAuthenticationToken authenticate(String tokenString) {
+        var rejection = rejectedTokenCache == null ? null : rejectedTokenCache.get(tokenString);
+        if (rejection != null) {
+            throw rejection;
+        }
+        var roleMappingGeneration = roleConfig.getRoleMappingGeneration();
+        var restored = authenticationFactory.restore(tokenString);
+        if (restored != null) {
+            cacheVerifiedToken(tokenString, restored.authentication(), restored.expiresAt(), roleMappingGeneration);
+            return restored.authentication();
+        }
+        ViravaAuthenticationToken authentication;
+        Instant expiresAt;
+        if (claimsAuthenticator == null) {
+            var jwt = verify(tokenAuthenticator, tokenString);
+            authentication = authenticationFactory.create(jwt, tokenString);
+            expiresAt = jwt.getExpiresAtAsInstant();
+        } else {
+            var verifiedClaims = verify(claimsAuthenticator, tokenString);
+            authentication = authenticationFactory.create(verifiedClaims, tokenString);
+            expiresAt = authenticationFactory.opaqueTokenCacheExpiry(verifiedClaims.expiresAt());
+        }
+        cacheVerifiedToken(tokenString, authentication, expiresAt, roleMappingGeneration);
+        return authentication;
+    }
+
+    /**
+     * Caches the authentication unless the role mapping was reloaded since its permissions were resolved. A reload
+     * racing with the put may have run its listener before the entry was added, so the entry is evicted again.
+     */
+    private void cacheVerifiedToken(String tokenString, ViravaAuthenticationToken authentication, Instant expiresAt,
+                                    long roleMappingGeneration) {
+        var cache = verifiedTokenCache;
+        if (cache == null) {
+            return;
+        }
+        cache.put(tokenString, authentication, expiresAt);
+        if (roleConfig.getRoleMappingGeneration() != roleMappingGeneration) {
+            cache.invalidate(tokenString);
+        }
+    }
+
+    private <T> T verify(TokenAuthenticator<T> authenticator, String tokenString) {
+        var verifyStart = metrics == null ? 0L : System.nanoTime();
+        T verified;
+        try {
+            verified = authenticator.process(tokenString);
+        } catch (ViravaAuthenticationException exception) {
+            if (rejectedTokenCache != null) {
+                rejectedTokenCache.put(tokenString, exception);
+            }
+            throw exception;
+        }
+        if (metrics != null) {
+            metrics.recordFilterPhase(ViravaMetrics.FilterPhase.VERIFY, System.nanoTime() - verifyStart);
+        }
+        return verified;
+    }
 }
@@ -0,0 +1,188 @@
+package com.cleverpine.viravaspringhelper.filter;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.cleverpine.viravaspringhelper.cache.RejectedTokenCache;
+import com.cleverpine.viravaspringhelper.cache.VerifiedTokenCache;
+import com.cleverpine.viravaspringhelper.config.AuthTokenConfig;
+import com.cleverpine.viravaspringhelper.config.RoleConfig;
+import com.cleverpine.viravaspringhelper.core.ReactiveTokenAuthenticator;
+import com.cleverpine.viravaspringhelper.core.ViravaAuthenticationToken;
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
+import com.cleverpine.viravaspringhelper.core.ViravaWebFilterExceptionHandler;
+import com.cleverpine.viravaspringhelper.error.exception.ViravaAuthenticationException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link ViravaFilter} for WebFlux applications. The authentication is stored in the
+ * {@link ReactiveSecurityContextHolder} instead of the thread bound security context.
+ * <p>
+ * Register it in the security filter chain, e.g.
+ * {@code http.addFilterAt(viravaWebFilter, SecurityWebFiltersOrder.AUTHENTICATION)}.
+ * </p>
+ */
+public class ViravaWebFilter implements WebFilter {
+
+    public static final String BEARER_PREFIX = ViravaFilter.BEARER_PREFIX;
+
+    private final ReactiveTokenAuthenticator<DecodedJWT> tokenAuthenticator;
+    private final JwtAuthenticationFactory authenticationFactory;
+    private final RoleConfig<?, ?> roleConfig;
+    private ViravaWebFilterExceptionHandler filterExceptionHandler;
+    private VerifiedTokenCache verifiedTokenCache;
+    private Runnable verifiedTokenCacheReloadListenerRemoval;
+    private RejectedTokenCache rejectedTokenCache;
+    private ViravaMetrics metrics;
+
+    public ViravaWebFilter(RoleConfig<?, ?> roleConfig, ObjectMapper objectMapper, AuthTokenConfig authTokenConfig, ReactiveTokenAuthenticator<DecodedJWT> tokenAuthenticator) {
+        this.tokenAuthenticator = tokenAuthenticator;
+        this.authenticationFactory = new JwtAuthenticationFactory(roleConfig, objectMapper, authTokenConfig);
+        this.roleConfig = roleConfig;
+    }
+
+    /**
+     * Sets a handler for unauthorized responses.
+     * If not set, the filter will complete the response with a 401 status code.
+     *
+     * @param filterExceptionHandler the handler for unauthorized responses
+     */
+    public void setFilterExceptionHandler(ViravaWebFilterExceptionHandler filterExceptionHandler) {
+        this.filterExceptionHandler = filterExceptionHandler;
+    }
+
+    /**
+     * Sets a cache for already verified tokens. See {@link ViravaFilter#setVerifiedTokenCache(VerifiedTokenCache)}.
+     *
+     * @param verifiedTokenCache the cache to use for verified tokens
+     */
+    public void setVerifiedTokenCache(VerifiedTokenCache verifiedTokenCache) {
+        if (verifiedTokenCacheReloadListenerRemoval != null) {
+            verifiedTokenCacheReloadListenerRemoval.run();
+            verifiedTokenCacheReloadListenerRemoval = null;
+        }
+        this.verifiedTokenCache = verifiedTokenCache;
+        if (verifiedTokenCache != null) {
+            verifiedTokenCacheReloadListenerRemoval = roleConfig.addReloadListener(diff -> verifiedTokenCache.invalidateAll());
+        }
+    }
+
+    /**
+     * Sets a cache for recently rejected tokens. See {@link ViravaFilter#setRejectedTokenCache(RejectedTokenCache)}.
+     *
+     * @param rejectedTokenCache the cache to use for rejected tokens
+     */
+    public void setRejectedTokenCache(RejectedTokenCache rejectedTokenCache) {
+        this.rejectedTokenCache = rejectedTokenCache;
+    }
+
+    /**
+     * Enables or disables streaming claims extraction. See {@link ViravaFilter#setStreamingClaimsExtraction(boolean)}.
+     *
+     * @param streamingClaimsExtraction whether to use streaming claims extraction
+     */
+    public void setStreamingClaimsExtraction(boolean streamingClaimsExtraction) {
+        authenticationFactory.setStreamingClaimsExtraction(streamingClaimsExtraction);
+    }
+
+    /**
+     * Enables or disables erasing the credentials of the authentication once it is built.
+     * See {@link ViravaFilter#setEraseCredentialsAfterAuthentication(boolean)}.
+     *
+     * @param eraseCredentialsAfterAuthentication whether to erase the credentials
+     */
+    public void setEraseCredentialsAfterAuthentication(boolean eraseCredentialsAfterAuthentication) {
+        authenticationFactory.setEraseCredentialsAfterAuthentication(eraseCredentialsAfterAuthentication);
+    }
+
+    /**
+     * Sets the metrics to record the authentication phases and rejections to. See {@link ViravaFilter#setMetrics(ViravaMetrics)}.
+     *
+     * @param metrics the metrics to record to
+     */
+    public void setMetrics(ViravaMetrics metrics) {
+        this.metrics = metrics;
+        authenticationFactory.setMetrics(metrics);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String authorizationHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader == null || !authorizationHeader.startsWith(BEARER_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        var tokenString = authorizationHeader.substring(BEARER_PREFIX.length());
+        return authenticate(tokenString)
+                .onErrorResume(ViravaWebFilter::isAuthenticationFailure,
+                        exception -> handleException(exchange, (Exception) exception)
+                                .then(Mono.<ViravaAuthenticationToken>empty()))
+                .flatMap(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)));
+    }
+
+    private Mono<ViravaAuthenticationToken> authenticate(String tokenString) {
+        var cached = verifiedTokenCache == null ? null : verifiedTokenCache.get(tokenString);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        var rejection = rejectedTokenCache == null ? null : rejectedTokenCache.get(tokenString);
+        if (rejection != null) {
+            return Mono.error(rejection);
+        }
+        var verification = verify(tokenString);
+        if (rejectedTokenCache != null) {
+            verification = verification.doOnError(ViravaAuthenticationException.class,
+                    exception -> rejectedTokenCache.put(tokenString, exception));
+        }
+        return verification
+                .flatMap(jwt -> Mono.fromCallable(() -> authenticate(jwt, tokenString)));
+    }
+
+    private Mono<DecodedJWT> verify(String tokenString) {
+        if (metrics == null) {
+            return tokenAuthenticator.process(tokenString);
+        }
+        return Mono.defer(() -> {
+            var verifyStart = System.nanoTime();
+            return tokenAuthenticator.process(tokenString)
+                    .doOnNext(jwt -> metrics.recordFilterPhase(ViravaMetrics.FilterPhase.VERIFY,
+                            System.nanoTime() - verifyStart));
+        });
+    }
+
+    private ViravaAuthenticationToken authenticate(DecodedJWT jwt, String tokenString) {
+        var roleMappingGeneration = roleConfig.getRoleMappingGeneration();
+        var authentication = authenticationFactory.create(jwt, tokenString);
+        var cache = verifiedTokenCache;
+        if (cache != null) {
+            cache.put(tokenString, authentication, jwt.getExpiresAtAsInstant());
+            // a reload racing with the put may have invalidated the cache before the entry was added
+            if (roleConfig.getRoleMappingGeneration() != roleMappingGeneration) {
+                cache.invalidate(tokenString);
+            }
+        }
+        return authentication;
+    }
+
+    private Mono<Void> handleException(ServerWebExchange exchange, Exception exception) {
+        if (metrics != null) {
+            metrics.countRejection(ViravaMetrics.RejectionCause.of(exception));
+        }
+        if (filterExceptionHandler != null) {
+            return filterExceptionHandler.handle(exchange, exception);
+        }
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        return response.setComplete();
+    }
+
+    private static boolean isAuthenticationFailure(Throwable throwable) {
+        return throwable instanceof ViravaAuthenticationException || throwable instanceof JsonProcessingException;
+    }
+}
@@ -0,0 +1,178 @@
+package com.cleverpine.viravaspringhelper.metrics;
+
+import com.cleverpine.viravaspringhelper.core.BaseResource;
+import com.cleverpine.viravaspringhelper.core.ViravaMetrics;
+import com.cleverpine.viravaspringhelper.dto.ScopeType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records Virava metrics to a Micrometer {@link MeterRegistry}.
+ * <p>
+ * All tags are low-cardinality: filter phases, outcomes and rejection causes are fixed sets, and denials are tagged
+ * with the resource name and the required scopes, both bounded by the application's resource catalog.
+ * Meters are registered up front, or once per resource and scope combination for denials, so recording does not
+ * look anything up in the registry.
+ * </p>
+ */
+public class MicrometerViravaMetrics implements ViravaMetrics {
+
+    public static final String FILTER_PHASE_TIMER = "virava.filter.phase";
+    public static final String JWK_FETCH_TIMER = "virava.jwk.fetch";
+    public static final String INTROSPECTION_TIMER = "virava.introspection";
+    public static final String CUSTOM_PRINCIPAL_INFO_LOAD_TIMER = "virava.principal.info.load";
+    public static final String AUTHORIZATION_TIMER = "virava.authorization";
+    public static final String REJECTION_COUNTER = "virava.authentication.rejections";
+    public static final String DENIAL_COUNTER = "virava.authorization.denials";
+    public static final String ROLE_MAPPING_RELOAD_TIMER = "virava.role.mapping.reload";
+    public static final String ROLE_MAPPING_CHANGE_COUNTER = "virava.role.mapping.changes";
+
+    private final MeterRegistry registry;
+    private final Map<FilterPhase, Timer> filterPhaseTimers = new EnumMap<>(FilterPhase.class);
+    private final Map<RejectionCause, Counter> rejectionCounters = new EnumMap<>(RejectionCause.class);
+    private final Map<DenialKey, Counter> denialCounters = new ConcurrentHashMap<>();
+    private final Timer successfulJwkFetchTimer;
+    private final Timer failedJwkFetchTimer;
+    private final Timer successfulIntrospectionTimer;
+    private final Timer failedIntrospectionTimer;
+    private final Timer customPrincipalInfoLoadTimer;
+    private final Timer grantedAuthorizationTimer;
+    private final Timer deniedAuthorizationTimer;
+    private final Timer successfulRoleMappingReloadTimer;
+    private final Timer failedRoleMappingReloadTimer;
+    private final Counter roleMappingChangeCounter;
+
+    public MicrometerViravaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (FilterPhase phase : FilterPhase.values()) {
+            filterPhaseTimers.put(phase, Timer.builder(FILTER_PHASE_TIMER)
+                    .description("Time spent in a phase of authenticating a bearer token")
+                    .tag("phase", tagValue(phase))
+                    .register(registry));
+        }
+        for (RejectionCause cause : RejectionCause.values()) {
+            rejectionCounters.put(cause, Counter.builder(REJECTION_COUNTER)
+                    .description("Bearer tokens rejected by the Virava filter")
+                    .tag("cause", tagValue(cause))
+                    .register(registry));
+        }
+        successfulJwkFetchTimer = jwkFetchTimer("success");
+        failedJwkFetchTimer = jwkFetchTimer("failure");
+        successfulIntrospectionTimer = introspectionTimer("success");
+        failedIntrospectionTimer = introspectionTimer("failure");
+        customPrincipalInfoLoadTimer = Timer.builder(CUSTOM_PRINCIPAL_INFO_LOAD_TIMER)
+                .description("Time spent loading custom principal info")
+                .register(registry);
+        grantedAuthorizationTimer = authorizationTimer("granted");
+        deniedAuthorizationTimer = authorizationTimer("denied");
+        successfulRoleMappingReloadTimer = roleMappingReloadTimer("success");
+        failedRoleMappingReloadTimer = roleMappingReloadTimer("failure");
+        roleMappingChangeCounter = Counter.builder(ROLE_MAPPING_CHANGE_COUNTER)
+                .description("Roles whose permissions were added, removed or changed by role mapping reloads")
+                .register(registry);
+    }
+
+    @Override
+    public void recordFilterPhase(FilterPhase phase, long durationNanos) {
+        filterPhaseTimers.get(phase).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordJwkFetch(long durationNanos, boolean successful) {
+        (successful ? successfulJwkFetchTimer : failedJwkFetchTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordIntrospection(long durationNanos, boolean successful) {
+        (successful ? successfulIntrospectionTimer : failedIntrospectionTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCustomPrincipalInfoLoad(long durationNanos) {
+        customPrincipalInfoLoadTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordAuthorization(long durationNanos, boolean granted) {
+        (granted ? grantedAuthorizationTimer : deniedAuthorizationTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void countRejection(RejectionCause cause) {
+        rejectionCounters.get(cause).increment();
+    }
+
+    @Override
+    public void countDenial(BaseResource resource, int requiredScopeMask) {
+        var key = new DenialKey(resource.resource(), requiredScopeMask);
+        denialCounters.computeIfAbsent(key, this::denialCounter).increment();
+    }
+
+    @Override
+    public void recordRoleMappingReload(long durationNanos, boolean successful, int changedRoles) {
+        (successful ? successfulRoleMappingReloadTimer : failedRoleMappingReloadTimer)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        roleMappingChangeCounter.increment(changedRoles);
+    }
+
+    private Counter denialCounter(DenialKey key) {
+        return Counter.builder(DENIAL_COUNTER)
+                .description("Authorizations denied by the Virava secured aspect")
+                .tag("resource", key.resource())
+                .tag("scope", scopeTagValue(key.requiredScopeMask()))
+                .register(registry);
+    }
+
+    private Timer jwkFetchTimer(String outcome) {
+        return Timer.builder(JWK_FETCH_TIMER)
+                .description("Time spent fetching keys from the JWK set")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer introspectionTimer(String outcome) {
+        return Timer.builder(INTROSPECTION_TIMER)
+                .description("Time spent calling the token introspection endpoint")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer authorizationTimer(String outcome) {
+        return Timer.builder(AUTHORIZATION_TIMER)
+                .description("Time spent authorizing @ViravaSecured methods")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer roleMappingReloadTimer(String outcome) {
+        return Timer.builder(ROLE_MAPPING_RELOAD_TIMER)
+                .description("Time spent loading and compiling role mappings")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String scopeTagValue(int scopeMask) {
+        var scopes = new ArrayList<String>();
+        for (ScopeType scopeType : ScopeType.values()) {
+            if ((scopeMask & scopeType.mask()) != 0) {
+                scopes.add(tagValue(scopeType));
+            }
+        }
+        return scopes.isEmpty() ? "none" : String.join(",", scopes);
+    }
+
+    private record DenialKey(String resource, int requiredScopeMask) {
+    }
+}